@@ -0,0 +1,53 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.vaadin.sockjs.communication;
+
+/**
+ * What a push connection does when the client does not read messages as fast as they are sent,
+ * that is when the write queue of its socket is full.
+ *
+ * Actions taken are counted by {@link PushBackpressureStats}.
+ */
+public enum PushBackpressurePolicy {
+
+    /**
+     * Messages are not written until the write queue has been drained; changes keep accumulating
+     * in the UI and are then sent in a single message.
+     */
+    PAUSE,
+
+    /**
+     * Messages are dropped until the write queue has been drained, then a single message resynchronizes
+     * the client with all the changes made meanwhile.
+     *
+     * Dropped messages are never built, so the changes they would have carried stay in the UI and the
+     * sync ids they would have consumed are not used; the client then sees no gap in the message sequence.
+     */
+    RESYNC,
+
+    /**
+     * Messages are still written, but the connection is closed if the write queue is not drained
+     * within the time budget, or if messages written meanwhile exceed the byte budget.
+     */
+    DISCONNECT
+}
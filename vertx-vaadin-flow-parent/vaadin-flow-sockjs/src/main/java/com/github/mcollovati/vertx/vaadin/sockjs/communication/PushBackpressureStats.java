@@ -0,0 +1,90 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.vaadin.sockjs.communication;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the {@link PushBackpressurePolicy} actions taken by the push connections of a Vaadin service.
+ */
+public final class PushBackpressureStats {
+
+    private final AtomicInteger throttled = new AtomicInteger();
+    private final LongAdder throttlingEvents = new LongAdder();
+    private final LongAdder droppedMessages = new LongAdder();
+    private final LongAdder disconnectedClients = new LongAdder();
+
+    /**
+     * Gets the number of connections currently throttled, because of a full write queue.
+     *
+     * @return the number of throttled connections
+     */
+    public int throttledConnections() {
+        return throttled.get();
+    }
+
+    /**
+     * Gets how many times connections have been throttled.
+     *
+     * @return the number of throttling events
+     */
+    public long throttlingEvents() {
+        return throttlingEvents.sum();
+    }
+
+    /**
+     * Gets the number of messages skipped by the {@link PushBackpressurePolicy#RESYNC} policy.
+     *
+     * @return the number of dropped messages
+     */
+    public long droppedMessages() {
+        return droppedMessages.sum();
+    }
+
+    /**
+     * Gets the number of connections closed by the {@link PushBackpressurePolicy#DISCONNECT} policy.
+     *
+     * @return the number of closed connections
+     */
+    public long disconnectedClients() {
+        return disconnectedClients.sum();
+    }
+
+    void throttlingStarted() {
+        throttled.incrementAndGet();
+        throttlingEvents.increment();
+    }
+
+    void throttlingEnded() {
+        throttled.decrementAndGet();
+    }
+
+    void messageDropped() {
+        droppedMessages.increment();
+    }
+
+    void clientDisconnected() {
+        disconnectedClients.increment();
+    }
+}
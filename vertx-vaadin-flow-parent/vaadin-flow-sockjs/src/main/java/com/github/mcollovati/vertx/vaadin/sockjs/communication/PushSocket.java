@@ -35,6 +35,38 @@ public interface PushSocket extends Serializable {
 
     CompletionStage<?> close();
 
+    /**
+     * Closes the socket once the pending write has completed, or once the timeout has expired,
+     * without blocking the caller.
+     *
+     * @param pendingWrite the last write sent through this socket
+     * @param timeout      the maximum time to wait for the pending write, in ms
+     * @return a completion stage completed when the socket has been closed
+     */
+    CompletionStage<?> closeAfter(CompletionStage<?> pendingWrite, long timeout);
+
+    /**
+     * Runs a task on the socket context once the delay has expired.
+     *
+     * @param delay the delay, in ms
+     * @param task  the task to run
+     */
+    void schedule(long delay, Runnable task);
+
+    /**
+     * Checks if the client is not reading messages as fast as they are written.
+     *
+     * @return true if the write queue of the socket is full
+     */
+    boolean isWriteQueueFull();
+
+    /**
+     * Runs a task on the socket context once the write queue is no longer full.
+     *
+     * @param handler the task to run
+     */
+    void drainHandler(Runnable handler);
+
     boolean isConnected();
 
 }
@@ -23,13 +23,14 @@
 package com.github.mcollovati.vertx.vaadin.sockjs.communication;
 
 import java.io.Reader;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.vaadin.flow.component.UI;
+import com.vaadin.flow.server.Command;
 import com.vaadin.flow.server.VaadinSession;
 import com.vaadin.flow.server.communication.PushConnection;
 import com.vaadin.flow.server.communication.UidlWriter;
@@ -39,15 +40,86 @@ public class SockJSPushConnection implements PushConnection {
 
     private static final long serialVersionUID = -1336533816978562477L;
 
+    /**
+     * Maximum time, in ms, to wait for the last message to be sent before closing the connection.
+     */
+    private static final long DISCONNECT_TIMEOUT = 1000;
+
     private final int uiId;
     private PushSocket socket;
     private State state = State.DISCONNECTED;
-    private transient Future<?> outgoingMessage;
+    private transient CompletionStage<?> outgoingMessage;
+
+    private long coalescingWindow;
+    private long coalescingMaxDelay;
+    private int coalescingMaxPending;
+    private PushBackpressurePolicy backpressurePolicy = PushBackpressurePolicy.PAUSE;
+    private long backpressureByteBudget;
+    private long backpressureTimeBudget;
+    // Captured while holding the session lock, for timer and drain callbacks
+    private transient VaadinSession session;
+    private transient int pendingPushes;
+    private transient int pendingSyncId;
+    private transient long firstPendingPushAt;
+    private transient long lastPendingPushAt;
+    private transient boolean flushScheduled;
+    private transient boolean throttled;
+    private transient boolean pausedPush;
+    private transient boolean pausedPushAsync;
+    private transient long throttledBytes;
+    private transient int throttlingEpisode;
+    private transient PushBackpressureStats stats;
 
     public SockJSPushConnection(UI ui) {
         this.uiId = ui.getUIId();
     }
 
+    /**
+     * Enables coalescing of asynchronous pushes.
+     *
+     * Server originated pushes are not sent immediately: they are merged into a single message, sent
+     * once no other push has been requested for {@code window} ms, and at most {@code maxDelay} ms after
+     * the first pending push, or as soon as {@code maxPending} pushes are pending.
+     * Responses to client requests are always sent immediately, together with pending changes;
+     * pending pushes whose changes have been sent with the response to an XHR request are dropped.
+     *
+     * @param window     the quiet time after which pending pushes are sent, in ms; zero or less disables coalescing
+     * @param maxDelay   the maximum time a push can be delayed, in ms
+     * @param maxPending the maximum number of pushes merged in a single message
+     */
+    public void setCoalescing(long window, long maxDelay, int maxPending) {
+        this.coalescingWindow = window;
+        this.coalescingMaxDelay = Math.max(window, maxDelay);
+        this.coalescingMaxPending = Math.max(1, maxPending);
+    }
+
+    /**
+     * Sets what this connection does when the client does not read messages as fast as they are sent.
+     *
+     * @param policy     the backpressure policy
+     * @param byteBudget for {@link PushBackpressurePolicy#DISCONNECT}, the maximum size, in UTF-8 encoded bytes,
+     *                   of messages written while the write queue is full; zero or less for no limit
+     * @param timeBudget for {@link PushBackpressurePolicy#DISCONNECT}, the maximum time, in ms, the write queue
+     *                   can stay full; zero or less for no limit
+     */
+    public void setBackpressure(PushBackpressurePolicy policy, long byteBudget, long timeBudget) {
+        this.backpressurePolicy = Objects.requireNonNull(policy);
+        this.backpressureByteBudget = byteBudget;
+        this.backpressureTimeBudget = timeBudget;
+    }
+
+    /**
+     * Sets the counters updated by the backpressure policy of this connection, usually shared
+     * by all the connections of a Vaadin service.
+     *
+     * Counters are not serialized with the connection.
+     *
+     * @param stats the counters, or {@literal null} to disable counting
+     */
+    public void setBackpressureStats(PushBackpressureStats stats) {
+        this.stats = stats;
+    }
+
     @Override
     public void push() {
         push(true);
@@ -68,19 +140,201 @@ public class SockJSPushConnection implements PushConnection {
             } else {
                 state = State.RESPONSE_PENDING;
             }
+        } else if (async && coalescingWindow > 0) {
+            coalesce();
+        } else {
+            // Also carries the changes of pending pushes
+            pendingPushes = 0;
+            sendPush(async);
+        }
+    }
+
+    private void sendPush(boolean async) {
+        if (!throttled && socket.isWriteQueueFull()) {
+            startThrottling();
+        }
+        if (throttled && backpressurePolicy != PushBackpressurePolicy.DISCONNECT) {
+            // No message is built, changes stay in the UI until the write queue is drained
+            if (backpressurePolicy == PushBackpressurePolicy.RESYNC && stats != null) {
+                stats.messageDropped();
+            }
+            pausedPushAsync = pausedPush ? pausedPushAsync && async : async;
+            pausedPush = true;
+            return;
+        }
+        String message;
+        try {
+            message = createMessage(async);
+        } catch (Exception e) {
+            throw new PushException("Push failed", e);
+        }
+        if (throttled && backpressurePolicy == PushBackpressurePolicy.DISCONNECT) {
+            throttledBytes += utf8Length(message);
+            if (backpressureByteBudget > 0 && throttledBytes > backpressureByteBudget) {
+                disconnectSlowClient();
+                return;
+            }
+        }
+        sendMessage(message);
+    }
+
+    /**
+     * Creates the message carrying the pending changes of the UI; called while holding the session lock.
+     *
+     * @param async true if the message is an asynchronous push, false if it is a response to a client request
+     * @return the message
+     */
+    protected String createMessage(boolean async) {
+        UI ui = VaadinSession.getCurrent().getUIById(this.uiId);
+        JsonObject response = new UidlWriter().createUidl(ui, async);
+        return "for(;;);[" + response.toJson() + "]";
+    }
+
+    private void startThrottling() {
+        throttled = true;
+        throttledBytes = 0;
+        int episode = ++throttlingEpisode;
+        session = VaadinSession.getCurrent();
+        if (stats != null) {
+            stats.throttlingStarted();
+        }
+        PushSocket throttledSocket = socket;
+        throttledSocket.drainHandler(() -> accessSession(() -> onDrain(throttledSocket)));
+        if (backpressurePolicy == PushBackpressurePolicy.DISCONNECT && backpressureTimeBudget > 0) {
+            throttledSocket.schedule(backpressureTimeBudget, () -> accessSession(() -> {
+                // Not drained since this timer was set, a later throttling has its own timer
+                if (throttled && throttlingEpisode == episode && socket == throttledSocket) {
+                    disconnectSlowClient();
+                }
+            }));
+        }
+    }
+
+    private void stopThrottling() {
+        if (throttled) {
+            throttled = false;
+            if (stats != null) {
+                stats.throttlingEnded();
+            }
+        }
+    }
+
+    private static long utf8Length(String message) {
+        long length = 0;
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < message.length()
+                && Character.isLowSurrogate(message.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private void onDrain(PushSocket drainedSocket) {
+        if (!throttled || socket != drainedSocket) {
+            return;
+        }
+        stopThrottling();
+        if (pausedPush) {
+            // A single message with all the changes made while throttled
+            pausedPush = false;
+            sendPush(pausedPushAsync);
+        }
+    }
+
+    private void disconnectSlowClient() {
+        getLogger().log(Level.INFO, "Closing push connection of UI {0}, the client is not reading messages", uiId);
+        if (stats != null) {
+            stats.clientDisconnected();
+        }
+        if (isConnected()) {
+            disconnect();
         } else {
-            try {
-                UI ui = VaadinSession.getCurrent().getUIById(this.uiId);
-                JsonObject response = new UidlWriter().createUidl(ui, async);
-                sendMessage("for(;;);[" + response.toJson() + "]");
-            } catch (Exception e) {
-                throw new PushException("Push failed", e);
+            connectionLost();
+        }
+    }
+
+    private void accessSession(Command command) {
+        try {
+            session.access(command);
+        } catch (Exception e) {
+            getLogger().log(Level.INFO, "Error accessing session from push connection", e);
+        }
+    }
+
+    private void coalesce() {
+        long now = System.currentTimeMillis();
+        lastPendingPushAt = now;
+        int syncId = serverSyncId();
+        if (syncId != pendingSyncId) {
+            // A response sent meanwhile, for example to an XHR request, carried the pending changes
+            pendingPushes = 0;
+            pendingSyncId = syncId;
+        }
+        if (pendingPushes++ == 0) {
+            firstPendingPushAt = now;
+        }
+        if (pendingPushes >= coalescingMaxPending) {
+            flushPendingPushes();
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            session = VaadinSession.getCurrent();
+            socket.schedule(coalescingWindow, this::onCoalescingTimeout);
+        }
+    }
+
+    private void onCoalescingTimeout() {
+        // The message must be written while holding the session lock
+        accessSession(() -> {
+            flushScheduled = false;
+            if (pendingPushes > 0 && serverSyncId() != pendingSyncId) {
+                // Already sent with a response to a client request
+                pendingPushes = 0;
             }
+            if (pendingPushes == 0) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            long delay = Math.min(coalescingWindow - (now - lastPendingPushAt),
+                coalescingMaxDelay - (now - firstPendingPushAt));
+            if (delay > 0 && isConnected()) {
+                flushScheduled = true;
+                socket.schedule(delay, this::onCoalescingTimeout);
+            } else {
+                flushPendingPushes();
+            }
+        });
+    }
+
+    /**
+     * Gets the id of the last message sent to the client, incremented by every UIDL response,
+     * whatever the channel it was sent through.
+     */
+    private int serverSyncId() {
+        UI ui = VaadinSession.getCurrent().getUIById(uiId);
+        return ui == null ? -1 : ui.getInternals().getServerSyncId();
+    }
+
+    private void flushPendingPushes() {
+        pendingPushes = 0;
+        if (isConnected()) {
+            sendPush(true);
+        } else {
+            // Deferred until a connection is established
+            push(true);
         }
     }
 
     private void sendMessage(String message) {
-        this.outgoingMessage = socket.send(message).toCompletableFuture();
+        this.outgoingMessage = socket.send(message);
     }
 
     protected Reader receiveMessage(Reader data) {
@@ -100,29 +354,19 @@ public class SockJSPushConnection implements PushConnection {
             return;
         }
 
-        if (outgoingMessage != null) {
-            // Wait for the last message to be sent before closing the
-            // connection (assumes that futures are completed in order)
-            try {
-                outgoingMessage.get(1000, TimeUnit.MILLISECONDS);
-            } catch (TimeoutException e) {
-                getLogger().log(Level.INFO,
-                    "Timeout waiting for messages to be sent to client before disconnect");
-            } catch (Exception e) {
-                getLogger().log(Level.INFO,
-                    "Error waiting for messages to be sent to client before disconnect");
+        // The socket is closed once the last message has been sent (assumes
+        // that futures are completed in order), without waiting here for it:
+        // disconnect is called while holding the session lock
+        CompletionStage<?> lastMessage = outgoingMessage != null
+            ? outgoingMessage : CompletableFuture.completedFuture(null);
+        outgoingMessage = null;
+        PushSocket closingSocket = this.socket;
+        connectionLost();
+        closingSocket.closeAfter(lastMessage, DISCONNECT_TIMEOUT).whenComplete((unused, error) -> {
+            if (error != null) {
+                getLogger().log(Level.INFO, "Error waiting for disconnection", error);
             }
-            outgoingMessage = null;
-        }
-
-        // Should block until disconnection happens
-        try {
-            this.socket.close().thenRun(this::connectionLost)
-                .toCompletableFuture().get();
-        } catch (Exception e) {
-            getLogger().log(Level.INFO, "Error waiting for disconnection");
-            this.connectionLost();
-        }
+        });
     }
 
     @Override
@@ -151,14 +395,35 @@ public class SockJSPushConnection implements PushConnection {
 
     }
 
+    /**
+     * Handles the loss of the given socket, ignoring it if the connection has already moved to another socket.
+     *
+     * The end of a socket may be notified after the client has reconnected with a new one, for example
+     * once a disconnected socket has been closed; it must not disconnect the new socket.
+     *
+     * @param lostSocket the socket that has been closed
+     */
+    void connectionLost(PushSocket lostSocket) {
+        if (socket != null && socket.getUUID().equals(lostSocket.getUUID())) {
+            connectionLost();
+        }
+    }
+
     void connectionLost() {
         socket = null;
+        stopThrottling();
         if (state == State.CONNECTED) {
             // Guard against connectionLost being (incorrectly) called when
             // state is PUSH_PENDING or RESPONSE_PENDING
             // (http://dev.vaadin.com/ticket/16919)
-            state = State.DISCONNECTED;
+            if (pausedPush) {
+                // Sent once a new connection is established
+                state = pausedPushAsync ? State.PUSH_PENDING : State.RESPONSE_PENDING;
+            } else {
+                state = State.DISCONNECTED;
+            }
         }
+        pausedPush = false;
     }
 
     PushSocket getSocket() {
@@ -80,7 +80,11 @@ public class HttpReverseProxy {
             clientRequest.putHeader(entry.getKey(), valueOk);
         });
         clientRequest.setChunked(true);
-        clientRequest.end(routingContext.getBody());
+        if (routingContext.getBody() != null) {
+            clientRequest.end(routingContext.getBody());
+        } else {
+            clientRequest.end();
+        }
         serverRequest.resume();
     }
 
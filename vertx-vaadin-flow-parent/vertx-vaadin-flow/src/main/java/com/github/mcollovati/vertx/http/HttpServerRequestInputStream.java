@@ -0,0 +1,171 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.netty.buffer.ByteBuf;
+import io.vertx.core.Context;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+
+/**
+ * An {@link InputStream} fed by the data events of a {@link HttpServerRequest}.
+ *
+ * Chunks are handed over from the event loop to the reading thread as they arrive, so the body
+ * is never fully buffered in memory: the request is paused when more than {@code maxQueuedBytes}
+ * are waiting to be read, and resumed once the reader has consumed half of them.
+ *
+ * The stream must be read from a worker thread, since reads block until data is available.
+ */
+public class HttpServerRequestInputStream extends InputStream {
+
+    private static final Buffer END = Buffer.buffer(0);
+    private static final long READ_TIMEOUT = 60 * 1000;
+
+    private final HttpServerRequest request;
+    private final Context context;
+    private final long bodyLimit;
+    private final long maxQueuedBytes;
+    private final BlockingQueue<Buffer> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final AtomicBoolean paused = new AtomicBoolean();
+    private long receivedBytes;
+    private volatile Throwable failure;
+    private ByteBuf current;
+    private boolean eof;
+
+    /**
+     * Creates a stream for the given request and registers handlers on it.
+     *
+     * Must be called on the request context.
+     *
+     * @param context        the context of the request
+     * @param request        the request whose body should be read
+     * @param bodyLimit      max allowed size of the body, in bytes; -1 means no limit
+     * @param maxQueuedBytes max number of received bytes waiting to be read before pausing the request
+     */
+    public HttpServerRequestInputStream(Context context, HttpServerRequest request, long bodyLimit, long maxQueuedBytes) {
+        this.context = context;
+        this.request = request;
+        this.bodyLimit = bodyLimit;
+        this.maxQueuedBytes = maxQueuedBytes;
+        if (request.isEnded()) {
+            queue.add(END);
+        } else {
+            request.handler(this::onData);
+            request.endHandler(unused -> queue.add(END));
+            request.exceptionHandler(this::onFailure);
+        }
+    }
+
+    private void onData(Buffer data) {
+        if (failure != null) {
+            return;
+        }
+        receivedBytes += data.length();
+        if (bodyLimit != -1 && receivedBytes > bodyLimit) {
+            request.pause();
+            onFailure(new IOException("Request body exceeds the limit of " + bodyLimit + " bytes"));
+            return;
+        }
+        queue.add(data);
+        if (queuedBytes.addAndGet(data.length()) > maxQueuedBytes && paused.compareAndSet(false, true)) {
+            request.pause();
+        }
+    }
+
+    private void onFailure(Throwable cause) {
+        failure = cause;
+        queue.add(END);
+    }
+
+    @Override
+    public int read() throws IOException {
+        return nextChunk() ? current.readByte() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextChunk()) {
+            return -1;
+        }
+        int count = Math.min(len, current.readableBytes());
+        current.readBytes(b, off, count);
+        return count;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return current != null ? current.readableBytes() : 0;
+    }
+
+    private boolean nextChunk() throws IOException {
+        while (current == null || !current.isReadable()) {
+            if (eof) {
+                return false;
+            }
+            Buffer chunk = take();
+            if (chunk == END) {
+                eof = true;
+                current = null;
+                if (failure != null) {
+                    throw new IOException("Error reading request body", failure);
+                }
+                return false;
+            }
+            long queued = queuedBytes.addAndGet(-chunk.length());
+            if (queued <= maxQueuedBytes / 2 && paused.compareAndSet(true, false)) {
+                context.runOnContext(unused -> request.resume());
+            }
+            current = chunk.getByteBuf();
+        }
+        return true;
+    }
+
+    private Buffer take() throws IOException {
+        try {
+            Buffer chunk = queue.poll(READ_TIMEOUT, TimeUnit.MILLISECONDS);
+            if (chunk == null) {
+                throw new IOException("Timeout waiting for request body data");
+            }
+            return chunk;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for request body data");
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.Context;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerResponse;
+
+/**
+ * An {@link OutputStream} that streams its content to a {@link HttpServerResponse}.
+ *
+ * Written bytes are collected in a {@link Buffer} that is sent to the client as a chunk
+ * as soon as {@code bufferSize} bytes are available, so large responses are never kept
+ * entirely in memory.
+ * If the whole content fits in the buffer, the response is ended with a single write
+ * and Content-Length is computed by Vert.x; for this reason {@link #flush()} is deferred
+ * until either Content-Length has been set or content has already been streamed.
+ *
+ * When the response write queue is full the writing thread is paused until the queue
+ * is drained; this does not apply to event loop threads, that must never block.
+ */
+public class HttpServerResponseOutputStream extends OutputStream {
+
+    /**
+     * Default size, in bytes, of the buffer that triggers a chunk to be sent.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 32 * 1024;
+
+    private static final long DRAIN_TIMEOUT = 30 * 1000;
+
+    private final HttpServerResponse response;
+    private final int bufferSize;
+    private Buffer buffer = Buffer.buffer();
+    private boolean closed;
+
+    /**
+     * Creates a new stream for the given response.
+     *
+     * @param response   the response to write to
+     * @param bufferSize number of bytes that triggers a flush; zero or a negative value
+     *                   means that content is sent only on {@link #flush()} or {@link #close()}
+     */
+    public HttpServerResponseOutputStream(HttpServerResponse response, int bufferSize) {
+        this.response = Objects.requireNonNull(response);
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        buffer.appendByte((byte) b);
+        flushIfNeeded();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        Objects.requireNonNull(b);
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        ensureOpen();
+        buffer.appendBytes(b, off, len);
+        flushIfNeeded();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (!closed && (response.isChunked() || hasContentLength())) {
+            writeChunk();
+        }
+    }
+
+    /**
+     * Sends remaining buffered content and ends the response.
+     *
+     * Does nothing if the stream is already closed.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (!response.ended()) {
+            response.end(buffer);
+        }
+        buffer = Buffer.buffer();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream already closed");
+        }
+    }
+
+    private void flushIfNeeded() throws IOException {
+        if (bufferSize > 0 && buffer.length() >= bufferSize) {
+            writeChunk();
+        }
+    }
+
+    private void writeChunk() throws IOException {
+        if (buffer.length() == 0) {
+            return;
+        }
+        if (response.closed()) {
+            throw new IOException("Connection closed by client");
+        }
+        if (!response.isChunked() && !hasContentLength()) {
+            response.setChunked(true);
+        }
+        Buffer chunk = buffer;
+        buffer = Buffer.buffer();
+        response.write(chunk);
+        awaitDrain();
+    }
+
+    private boolean hasContentLength() {
+        return response.headers().contains(HttpHeaders.CONTENT_LENGTH);
+    }
+
+    private void awaitDrain() throws IOException {
+        if (Context.isOnEventLoopThread() || !response.writeQueueFull()) {
+            return;
+        }
+        CountDownLatch drained = new CountDownLatch(1);
+        response.drainHandler(unused -> drained.countDown());
+        // queue may have been drained before handler registration
+        if (!response.writeQueueFull()) {
+            drained.countDown();
+        }
+        try {
+            if (!drained.await(DRAIN_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                throw new IOException("Timeout waiting for response write queue to drain");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for response write queue to drain");
+        } finally {
+            response.drainHandler(null);
+        }
+    }
+}
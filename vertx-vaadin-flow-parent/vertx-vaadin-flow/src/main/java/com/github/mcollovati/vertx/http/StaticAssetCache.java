@@ -0,0 +1,290 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import com.github.mcollovati.vertx.support.StaticResourceIndex;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.impl.MimeMapping;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In memory cache of static assets, loaded on first hit.
+ *
+ * For every cached asset the cache keeps the content off-heap together with a strong ETag
+ * computed from the content hash, and a gzip encoded variant for compressible content types.
+ * Variants pre-encoded at build time ({@code .gz} and {@code .br} siblings on the classpath)
+ * are used as they are; brotli is served only from such siblings, since the JDK provides no encoder.
+ *
+ * Entries are evicted in least recently used order when the total size exceeds the configured budget.
+ */
+public class StaticAssetCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(StaticAssetCache.class);
+
+    static final String GZIP = "gzip";
+    static final String BROTLI = "br";
+
+    private static final int MIN_COMPRESSIBLE_SIZE = 1024;
+    private static final Pattern HASHED_NAME = Pattern.compile(".*[.-][0-9a-fA-F]{8,}(\\.cache)?\\.[a-zA-Z0-9]+$");
+
+    private final Vertx vertx;
+    private final StaticResourceIndex index;
+    private final long maxBytes;
+    private final long maxAssetBytes;
+    private final Map<String, Asset> assets = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<String> uncacheable = ConcurrentHashMap.newKeySet();
+    private long totalBytes;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param vertx    the vertx instance used to read resources
+     * @param index    index of classpath resources, used to find pre-encoded variants
+     * @param maxBytes max total size of cached content, including encoded variants
+     */
+    public StaticAssetCache(Vertx vertx, StaticResourceIndex index, long maxBytes) {
+        this(vertx, index, maxBytes, maxBytes / 4);
+    }
+
+    StaticAssetCache(Vertx vertx, StaticResourceIndex index, long maxBytes, long maxAssetBytes) {
+        this.vertx = vertx;
+        this.index = index;
+        this.maxBytes = maxBytes;
+        this.maxAssetBytes = maxAssetBytes;
+    }
+
+    /**
+     * Gets the cached asset for the given classpath resource, loading it if needed.
+     *
+     * The handler receives {@literal null} if the resource cannot be cached, for example because it is too large.
+     *
+     * @param resource classpath location of the resource
+     * @param handler  handler notified with the asset
+     */
+    public void get(String resource, Handler<AsyncResult<Asset>> handler) {
+        Asset asset;
+        synchronized (this) {
+            asset = assets.get(resource);
+        }
+        if (asset != null || uncacheable.contains(resource)) {
+            handler.handle(Future.succeededFuture(asset));
+            return;
+        }
+        vertx.<Asset>executeBlocking(promise -> promise.complete(load(resource)), false, ar -> {
+            if (ar.succeeded()) {
+                Asset loaded = ar.result();
+                if (loaded == null) {
+                    uncacheable.add(resource);
+                } else {
+                    put(resource, loaded);
+                }
+            }
+            handler.handle(ar);
+        });
+    }
+
+    /**
+     * Gets the total size of cached content.
+     *
+     * @return total size in bytes
+     */
+    public synchronized long size() {
+        return totalBytes;
+    }
+
+    private synchronized void put(String resource, Asset asset) {
+        Asset previous = assets.put(resource, asset);
+        if (previous != null) {
+            totalBytes -= previous.size();
+        }
+        totalBytes += asset.size();
+        Iterator<Asset> it = assets.values().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Asset evicted = it.next();
+            it.remove();
+            totalBytes -= evicted.size();
+            logger.trace("Evicted static asset {}", evicted.resource);
+        }
+    }
+
+    private Asset load(String resource) {
+        Buffer content = vertx.fileSystem().readFileBlocking(resource);
+        if (content.length() > maxAssetBytes) {
+            return null;
+        }
+        String contentType = MimeMapping.getMimeTypeForFilename(resource);
+        Buffer gzip = readVariant(resource + ".gz");
+        if (gzip == null && isCompressible(contentType) && content.length() >= MIN_COMPRESSIBLE_SIZE) {
+            gzip = gzip(content);
+        }
+        Buffer brotli = readVariant(resource + ".br");
+        return new Asset(resource, contentType, etag(content), HASHED_NAME.matcher(resource).matches(),
+            offHeap(content), offHeap(gzip), offHeap(brotli));
+    }
+
+    private Buffer readVariant(String resource) {
+        if (index.contains(resource)) {
+            return vertx.fileSystem().readFileBlocking(resource);
+        }
+        return null;
+    }
+
+    private static boolean isCompressible(String contentType) {
+        return contentType != null && (contentType.startsWith("text/")
+            || contentType.endsWith("javascript") || contentType.endsWith("json")
+            || contentType.endsWith("xml") || contentType.endsWith("svg+xml"));
+    }
+
+    private static Buffer gzip(Buffer content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length() / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content.getBytes());
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot compress static asset", e);
+        }
+        return Buffer.buffer(out.toByteArray());
+    }
+
+    private static String etag(Buffer content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes());
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Buffer offHeap(Buffer content) {
+        if (content == null) {
+            return null;
+        }
+        ByteBuffer direct = ByteBuffer.allocateDirect(content.length());
+        direct.put(content.getByteBuf().nioBuffer());
+        direct.flip();
+        // Memory is owned by the ByteBuffer and released by GC, writes must not free it
+        return Buffer.buffer(Unpooled.unreleasableBuffer(Unpooled.wrappedBuffer(direct)));
+    }
+
+    /**
+     * A cached static asset.
+     */
+    public static final class Asset {
+
+        private final String resource;
+        private final String contentType;
+        private final String etag;
+        private final boolean immutable;
+        private final Buffer content;
+        private final Buffer gzip;
+        private final Buffer brotli;
+
+        Asset(String resource, String contentType, String etag, boolean immutable, Buffer content, Buffer gzip, Buffer brotli) {
+            this.resource = resource;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.immutable = immutable;
+            this.content = content;
+            this.gzip = gzip;
+            this.brotli = brotli;
+        }
+
+        String contentType() {
+            return contentType;
+        }
+
+        String etag() {
+            return etag;
+        }
+
+        /**
+         * Gets the ETag of the content variant for the given encoding.
+         *
+         * A strong ETag must change with the representation, so encoded variants have the ETag
+         * of the identity content with the encoding appended.
+         *
+         * @param encoding {@literal gzip}, {@literal br} or {@literal identity}
+         * @return the ETag of the variant
+         */
+        String etag(String encoding) {
+            if (GZIP.equals(encoding)) {
+                return etag.substring(0, etag.length() - 1) + "-gz\"";
+            }
+            if (BROTLI.equals(encoding)) {
+                return etag.substring(0, etag.length() - 1) + "-br\"";
+            }
+            return etag;
+        }
+
+        boolean immutable() {
+            return immutable;
+        }
+
+        Buffer content() {
+            return content;
+        }
+
+        /**
+         * Gets the content variant for the given encoding.
+         *
+         * @param encoding {@literal gzip} or {@literal br}
+         * @return the encoded content, or {@literal null} if there is no variant for the encoding.
+         */
+        Buffer encoded(String encoding) {
+            if (GZIP.equals(encoding)) {
+                return gzip;
+            }
+            if (BROTLI.equals(encoding)) {
+                return brotli;
+            }
+            return null;
+        }
+
+        boolean hasEncodedVariants() {
+            return gzip != null || brotli != null;
+        }
+
+        long size() {
+            return content.length() + (gzip != null ? gzip.length() : 0) + (brotli != null ? brotli.length() : 0);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.http;
+
+import java.util.Optional;
+
+import com.github.mcollovati.vertx.support.StaticResourceIndex;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.FileProps;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.impl.MimeMapping;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.impl.Utils;
+
+/**
+ * Serves static resources resolved through a {@link StaticResourceIndex}.
+ *
+ * Requests for paths reserved to static resources that are not in the index
+ * fail with 404 without probing the file system, unless {@code fallThrough} is enabled;
+ * all other requests are passed to the next handler.
+ *
+ * When a {@link StaticAssetCache} is provided, cacheable resources are served from memory,
+ * with pre-encoded variants selected from the {@code Accept-Encoding} header and a strong ETag per variant.
+ * Other resources are sent from the file system with support for conditional and range requests;
+ * resources that cannot be read fail the request, or are passed to the next handler
+ * if {@code fallThrough} is enabled.
+ */
+public class StaticResourceHandler implements Handler<RoutingContext> {
+
+    private static final String CACHE_CONTROL = "public, max-age=86400";
+    private static final String CACHE_CONTROL_IMMUTABLE = "public, max-age=31536000, immutable";
+
+    private final StaticResourceIndex index;
+    private final boolean fallThrough;
+    private final StaticAssetCache assetCache;
+
+    private StaticResourceHandler(StaticResourceIndex index, boolean fallThrough, StaticAssetCache assetCache) {
+        this.index = index;
+        this.fallThrough = fallThrough;
+        this.assetCache = assetCache;
+    }
+
+    /**
+     * Creates a handler for the given index.
+     *
+     * @param index       the resources index
+     * @param fallThrough whether missing static resources should be passed to the next handler instead of failing with 404.
+     * @return the handler
+     */
+    public static StaticResourceHandler create(StaticResourceIndex index, boolean fallThrough) {
+        return new StaticResourceHandler(index, fallThrough, null);
+    }
+
+    /**
+     * Creates a handler for the given index, serving resources through the given cache.
+     *
+     * @param index       the resources index
+     * @param fallThrough whether missing static resources should be passed to the next handler instead of failing with 404.
+     * @param assetCache  the cache for static assets
+     * @return the handler
+     */
+    public static StaticResourceHandler create(StaticResourceIndex index, boolean fallThrough, StaticAssetCache assetCache) {
+        return new StaticResourceHandler(index, fallThrough, assetCache);
+    }
+
+    @Override
+    public void handle(RoutingContext routingContext) {
+        HttpMethod method = routingContext.request().method();
+        if (method != HttpMethod.GET && method != HttpMethod.HEAD) {
+            routingContext.next();
+            return;
+        }
+        String path = relativePath(routingContext);
+        Optional<String> resource = index.resolvePublic(path);
+        if (resource.isPresent() && assetCache != null) {
+            assetCache.get(resource.get(), ar -> {
+                if (ar.succeeded() && ar.result() != null) {
+                    sendAsset(routingContext, ar.result());
+                } else {
+                    sendResource(routingContext, resource.get());
+                }
+            });
+        } else if (resource.isPresent()) {
+            sendResource(routingContext, resource.get());
+        } else if (!fallThrough && StaticResourceIndex.isStaticPath(path)) {
+            routingContext.fail(HttpResponseStatus.NOT_FOUND.code());
+        } else {
+            routingContext.next();
+        }
+    }
+
+    private void sendResource(RoutingContext routingContext, String resource) {
+        routingContext.vertx().fileSystem().props(resource, ar -> {
+            if (ar.failed() || !ar.result().isRegularFile()) {
+                failOrNext(routingContext, HttpResponseStatus.NOT_FOUND.code(), ar.cause());
+            } else {
+                sendResource(routingContext, resource, ar.result());
+            }
+        });
+    }
+
+    private void sendResource(RoutingContext routingContext, String resource, FileProps props) {
+        HttpServerRequest request = routingContext.request();
+        HttpServerResponse response = routingContext.response();
+        // Second precision, as in Last-Modified header
+        long lastModified = props.lastModifiedTime() / 1000 * 1000;
+        String etag = "W/\"" + Long.toHexString(props.size()) + "-" + Long.toHexString(lastModified) + "\"";
+
+        String contentType = MimeMapping.getMimeTypeForFilename(resource);
+        if (contentType != null) {
+            if (contentType.startsWith("text")) {
+                contentType += ";charset=UTF-8";
+            }
+            response.putHeader(HttpHeaders.CONTENT_TYPE, contentType);
+        }
+        response.putHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.putHeader(HttpHeaders.ETAG, etag);
+        response.putHeader(HttpHeaderNames.LAST_MODIFIED, Utils.formatRFC1123DateTime(lastModified));
+        response.putHeader(HttpHeaderNames.ACCEPT_RANGES, "bytes");
+        if (isNotModified(request, etag, lastModified)) {
+            response.setStatusCode(HttpResponseStatus.NOT_MODIFIED.code()).end();
+            return;
+        }
+
+        long offset = 0;
+        long length = props.size();
+        String range = request.getHeader(HttpHeaderNames.RANGE);
+        if (range != null && props.size() > 0) {
+            long[] bounds = parseRange(range, props.size());
+            if (bounds == null) {
+                response.putHeader(HttpHeaderNames.CONTENT_RANGE, "bytes */" + props.size());
+                response.setStatusCode(HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE.code()).end();
+                return;
+            }
+            offset = bounds[0];
+            length = bounds[1] - bounds[0] + 1;
+            response.putHeader(HttpHeaderNames.CONTENT_RANGE, "bytes " + bounds[0] + "-" + bounds[1] + "/" + props.size());
+            response.setStatusCode(HttpResponseStatus.PARTIAL_CONTENT.code());
+        }
+        if (request.method() == HttpMethod.HEAD) {
+            response.putHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(length)).end();
+        } else {
+            response.sendFile(resource, offset, length, ar -> {
+                if (ar.failed()) {
+                    failOrNext(routingContext, HttpResponseStatus.INTERNAL_SERVER_ERROR.code(), ar.cause());
+                }
+            });
+        }
+    }
+
+    private void failOrNext(RoutingContext routingContext, int statusCode, Throwable cause) {
+        if (routingContext.response().headWritten()) {
+            routingContext.response().close();
+        } else if (fallThrough && statusCode == HttpResponseStatus.NOT_FOUND.code()) {
+            routingContext.next();
+        } else if (cause != null) {
+            routingContext.fail(statusCode, cause);
+        } else {
+            routingContext.fail(statusCode);
+        }
+    }
+
+    private static boolean isNotModified(HttpServerRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return matchesETag(ifNoneMatch, etag);
+        }
+        String ifModifiedSince = request.getHeader(HttpHeaderNames.IF_MODIFIED_SINCE);
+        if (ifModifiedSince != null) {
+            try {
+                return Utils.parseRFC1123DateTime(ifModifiedSince) >= lastModified;
+            } catch (RuntimeException ex) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses a single byte range, returning the inclusive bounds or {@code null} if it cannot be satisfied.
+     * Multiple ranges are not supported and are served as the first one.
+     */
+    static long[] parseRange(String range, long size) {
+        if (!range.startsWith("bytes=")) {
+            return null;
+        }
+        String spec = range.substring("bytes=".length()).split(",")[0].trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // Suffix range, last N bytes
+                start = Math.max(0, size - Long.parseLong(last));
+                end = size - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            }
+            return start <= end && start < size ? new long[]{start, end} : null;
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static void sendAsset(RoutingContext routingContext, StaticAssetCache.Asset asset) {
+        HttpServerRequest request = routingContext.request();
+        HttpServerResponse response = routingContext.response();
+        if (asset.contentType() != null) {
+            response.putHeader(HttpHeaders.CONTENT_TYPE, asset.contentType().startsWith("text")
+                ? asset.contentType() + ";charset=UTF-8" : asset.contentType());
+        }
+        response.putHeader(HttpHeaders.CACHE_CONTROL, asset.immutable() ? CACHE_CONTROL_IMMUTABLE : CACHE_CONTROL);
+        if (asset.hasEncodedVariants()) {
+            response.putHeader(HttpHeaderNames.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        Buffer content = asset.content();
+        String contentEncoding = HttpHeaders.IDENTITY.toString();
+        for (String encoding : new String[]{StaticAssetCache.BROTLI, StaticAssetCache.GZIP}) {
+            Buffer encoded = asset.encoded(encoding);
+            if (encoded != null && accepts(acceptEncoding, encoding)) {
+                content = encoded;
+                contentEncoding = encoding;
+                break;
+            }
+        }
+        // Each variant has its own ETag, the validator sent by the client must match the selected one
+        String etag = asset.etag(contentEncoding);
+        response.putHeader(HttpHeaders.ETAG, etag);
+        if (matchesETag(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatusCode(HttpResponseStatus.NOT_MODIFIED.code()).end();
+            return;
+        }
+        // Identity disables compression on the fly, content is either already encoded or not worth it
+        response.putHeader(HttpHeaders.CONTENT_ENCODING, contentEncoding);
+        if (request.method() == HttpMethod.HEAD) {
+            response.putHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(content.length())).end();
+        } else {
+            response.end(content);
+        }
+    }
+
+    private static boolean matchesETag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if ("*".equals(value) || etag.equals(value) || ("W/" + etag).equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean accepts(String acceptEncoding, String encoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            if (encoding.equalsIgnoreCase(tokens[0].trim())) {
+                return tokens.length == 1 || !tokens[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    static String relativePath(RoutingContext routingContext) {
+        String path = routingContext.normalisedPath();
+        String mountPoint = routingContext.mountPoint();
+        if (mountPoint != null && path.startsWith(mountPoint)) {
+            path = path.substring(mountPoint.length());
+        }
+        return path;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.http;
+
+import java.io.InputStream;
+import java.util.Optional;
+
+import io.vertx.core.Handler;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * A handler that exposes the request body as an {@link InputStream} instead of buffering it.
+ *
+ * The stream is stored in the {@link RoutingContext} and can be obtained with {@link #bodyStream(RoutingContext)};
+ * it must be consumed by a blocking handler, since reads wait for data to arrive.
+ */
+public class StreamingBodyHandler implements Handler<RoutingContext> {
+
+    /**
+     * Default max number of bytes waiting to be read before the request is paused.
+     */
+    public static final long DEFAULT_MAX_QUEUED_BYTES = 256 * 1024;
+
+    private static final String BODY_STREAM_KEY = StreamingBodyHandler.class.getName() + ".bodyStream";
+
+    private final long bodyLimit;
+    private final long maxQueuedBytes;
+
+    private StreamingBodyHandler(long bodyLimit, long maxQueuedBytes) {
+        this.bodyLimit = bodyLimit;
+        this.maxQueuedBytes = maxQueuedBytes;
+    }
+
+    /**
+     * Creates a handler that streams request body.
+     *
+     * @param bodyLimit max allowed size of the body, in bytes; -1 means no limit
+     * @return the handler
+     */
+    public static StreamingBodyHandler create(long bodyLimit) {
+        return new StreamingBodyHandler(bodyLimit, DEFAULT_MAX_QUEUED_BYTES);
+    }
+
+    @Override
+    public void handle(RoutingContext routingContext) {
+        if (routingContext.get(BODY_STREAM_KEY) == null) {
+            routingContext.put(BODY_STREAM_KEY, new HttpServerRequestInputStream(
+                routingContext.vertx().getOrCreateContext(), routingContext.request(), bodyLimit, maxQueuedBytes
+            ));
+        }
+        routingContext.next();
+    }
+
+    /**
+     * Gets the body stream registered by this handler, if any.
+     *
+     * @param routingContext the routing context
+     * @return the body stream, or an empty {@link Optional} if the body is not streamed.
+     */
+    public static Optional<InputStream> bodyStream(RoutingContext routingContext) {
+        return Optional.ofNullable(routingContext.get(BODY_STREAM_KEY));
+    }
+}
@@ -25,20 +25,72 @@ package com.github.mcollovati.vertx.support;
 import java.io.IOException;
 import java.io.InputStream;
 
+import io.netty.buffer.ByteBuf;
 import io.vertx.core.buffer.Buffer;
 
+/**
+ * An {@link InputStream} that reads directly from the Netty {@link ByteBuf} backing a Vert.x {@link Buffer},
+ * without copying its content.
+ */
 public class BufferInputStreamAdapter extends InputStream {
 
-    private final Buffer buffer;
-    private int position = 0;
+    private final ByteBuf byteBuf;
 
     public BufferInputStreamAdapter(Buffer buffer) {
-        this.buffer = buffer;
+        // getByteBuf returns a duplicate sharing the content, so reader index is not shared with the buffer
+        this.byteBuf = buffer.getByteBuf();
     }
 
     @Override
     public int read() throws IOException {
-        return (position < buffer.length()) ? buffer.getByte(position++) & 0xff : -1;
+        return byteBuf.isReadable() ? byteBuf.readByte() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        int readable = byteBuf.readableBytes();
+        if (readable == 0) {
+            return -1;
+        }
+        int count = Math.min(len, readable);
+        byteBuf.readBytes(b, off, count);
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        int count = (int) Math.min(n, byteBuf.readableBytes());
+        byteBuf.skipBytes(count);
+        return count;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return byteBuf.readableBytes();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        byteBuf.markReaderIndex();
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        byteBuf.resetReaderIndex();
     }
 
 }
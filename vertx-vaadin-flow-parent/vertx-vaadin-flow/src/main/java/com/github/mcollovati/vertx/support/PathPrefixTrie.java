@@ -0,0 +1,119 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.support;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Immutable trie of path prefixes, matched segment by segment.
+ *
+ * A value registered for a prefix applies to all paths below it, that is paths
+ * starting with the prefix followed by a slash; lookups return the value of the longest
+ * matching prefix. Leading slashes are ignored.
+ *
+ * @param <T> type of values associated to prefixes
+ */
+public final class PathPrefixTrie<T> {
+
+    private final Node<T> root;
+
+    private PathPrefixTrie(Node<T> root) {
+        this.root = root;
+    }
+
+    /**
+     * Creates a builder for a new trie.
+     *
+     * @param <T> type of values associated to prefixes
+     * @return the builder
+     */
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Finds the value of the longest prefix matching the given path.
+     *
+     * @param path the path to match
+     * @return the value of the longest matching prefix, or an empty {@link Optional} if no prefix matches.
+     */
+    public Optional<T> find(String path) {
+        Node<T> node = root;
+        T value = null;
+        int start = path.startsWith("/") ? 1 : 0;
+        int end;
+        while ((end = path.indexOf('/', start)) != -1) {
+            node = node.children.get(path.substring(start, end));
+            if (node == null) {
+                break;
+            }
+            if (node.value != null) {
+                value = node.value;
+            }
+            start = end + 1;
+        }
+        return Optional.ofNullable(value);
+    }
+
+    private static final class Node<T> {
+        private final Map<String, Node<T>> children = new HashMap<>();
+        private T value;
+    }
+
+    public static final class Builder<T> {
+
+        private final Node<T> root = new Node<>();
+        private boolean built;
+
+        private Builder() {
+        }
+
+        /**
+         * Registers a value for the given prefix.
+         *
+         * @param prefix path prefix, segments separated by slash
+         * @param value  the value
+         * @return this builder
+         */
+        public Builder<T> add(String prefix, T value) {
+            if (built) {
+                throw new IllegalStateException("Trie already built");
+            }
+            Node<T> node = root;
+            for (String segment : prefix.split("/")) {
+                if (!segment.isEmpty()) {
+                    node = node.children.computeIfAbsent(segment, unused -> new Node<>());
+                }
+            }
+            node.value = value;
+            return this;
+        }
+
+        public PathPrefixTrie<T> build() {
+            built = true;
+            return new PathPrefixTrie<>(root);
+        }
+    }
+}
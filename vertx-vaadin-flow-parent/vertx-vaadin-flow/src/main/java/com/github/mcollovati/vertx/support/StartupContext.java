@@ -38,7 +38,6 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Enumeration;
 import java.util.EventListener;
-import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Objects;
@@ -47,6 +46,7 @@ import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.github.mcollovati.vertx.vaadin.VaadinOptions;
 import com.vaadin.flow.server.VaadinServletContext;
@@ -68,23 +68,34 @@ import org.slf4j.LoggerFactory;
 public final class StartupContext {
 
     private static final Logger logger = LoggerFactory.getLogger(StartupContext.class);
-    private final Set<String> resources;
+    private final StaticResourceIndex resources;
     private final Context context;
     private final Vertx vertx;
     private final VaadinOptions vaadinOptions;
 
     private StartupContext(Vertx vertx, Set<String> resources, VaadinOptions vaadinOptions) {
-        this.resources = new HashSet<>(resources);
+        this.resources = StaticResourceIndex.of(resources);
         this.context = vertx.getOrCreateContext();
         this.vaadinOptions = vaadinOptions;
         this.vertx = vertx;
     }
 
     public Optional<String> resolveResource(String resource) {
-        String normalized = resource.replaceFirst("^/", "");
-        return resources.stream()
-            .filter(r -> normalized.equals(r) || r.replaceFirst("^META-INF/resources/", "").equals(normalized))
-            .findFirst();
+        String normalized = resource.startsWith("/") ? resource.substring(1) : resource;
+        if (resources.contains(normalized)) {
+            return Optional.of(normalized);
+        }
+        return Optional.of(StaticResourceIndex.META_INF_RESOURCES + normalized)
+            .filter(resources::contains);
+    }
+
+    /**
+     * Gets the index of classpath resources collected at startup.
+     *
+     * @return the resources index
+     */
+    public StaticResourceIndex staticResources() {
+        return resources;
     }
 
     public static Future<StartupContext> of(Vertx vertx, VaadinOptions vaadinOptions) {
@@ -189,8 +200,11 @@ public final class StartupContext {
             }
 
 
-            return resources.stream()
-                .filter(p -> p.startsWith("META-INF/resources/" + relativePath) || p.startsWith(relativePath))
+            Stream<String> candidates = relativePath.isEmpty() ? resources.resources().stream() : Stream.concat(
+                resources.withPrefix("META-INF/resources/" + relativePath).stream(),
+                resources.withPrefix(relativePath).stream()
+            );
+            return candidates
                 .map(p -> {
                     Matcher matcher = pattern.matcher(p);
                     matcher.find();
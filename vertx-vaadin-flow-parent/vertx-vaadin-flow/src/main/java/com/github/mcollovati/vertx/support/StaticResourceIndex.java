@@ -0,0 +1,190 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.support;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+
+/**
+ * Immutable index of classpath resources, built once from the startup scan.
+ *
+ * Resources are kept in a sorted set to answer prefix queries, and every resource that is
+ * publicly served is mapped from its URL path (relative to the mount point, without leading slash)
+ * to its classpath location, so that static requests can be resolved with a single lookup.
+ *
+ * Public locations follow the same precedence of the former chain of {@code StaticHandler}s:
+ * when more than one resource maps to the same URL path, the one from the first matching
+ * location wins. Bower components are aliased to webjars and Vaadin push client script
+ * to its SockJS implementation, so no reroute is needed to serve them.
+ */
+public final class StaticResourceIndex {
+
+    static final String META_INF_RESOURCES = "META-INF/resources/";
+
+    private static final List<Location> LOCATIONS = Arrays.asList(
+        new Location("VAADIN/static/client/", META_INF_RESOURCES + "VAADIN/static/client/"),
+        new Location("VAADIN/build/", "META-INF/VAADIN/build/"),
+        new Location("VAADIN/static/", "VAADIN/static/", META_INF_RESOURCES + "VAADIN/static/"),
+        new Location("VAADIN/", "VAADIN/"),
+        new Location("webroot/", "webroot/"),
+        new Location("webjars/", "webroot/webjars/", META_INF_RESOURCES + "webjars/"),
+        new Location("frontend/", "frontend/", "webroot/frontend/", META_INF_RESOURCES + "frontend/"),
+        new Location("frontend-es6/", "frontend-es6/", META_INF_RESOURCES + "frontend-es6/"),
+        new Location("", META_INF_RESOURCES)
+    );
+    private static final String VAADIN_DYNAMIC = "VAADIN/dynamic/";
+    private static final String BOWER_COMPONENTS = "frontend/bower_components/";
+    private static final String WEBJARS = "webjars/";
+    private static final String VAADIN_PUSH = "VAADIN/static/push/vaadinPush";
+    private static final String VAADIN_PUSH_SOCKJS = VAADIN_PUSH + "SockJS";
+    private static final PathPrefixTrie<Boolean> STATIC_PATHS;
+
+    static {
+        PathPrefixTrie.Builder<Boolean> builder = PathPrefixTrie.builder();
+        LOCATIONS.stream().filter(location -> !location.urlPrefix.isEmpty())
+            .forEach(location -> builder.add(location.urlPrefix, Boolean.TRUE));
+        STATIC_PATHS = builder.add(VAADIN_DYNAMIC, Boolean.FALSE).build();
+    }
+
+    private final NavigableSet<String> resources;
+    private final Map<String, String> publicResources;
+
+    private StaticResourceIndex(NavigableSet<String> resources, Map<String, String> publicResources) {
+        this.resources = resources;
+        this.publicResources = publicResources;
+    }
+
+    /**
+     * Builds the index for the given classpath resources.
+     *
+     * @param resources paths of resources relative to their classpath element.
+     * @return the index
+     */
+    public static StaticResourceIndex of(Collection<String> resources) {
+        NavigableSet<String> sorted = new TreeSet<>(resources);
+        Map<String, String> publicResources = new HashMap<>();
+        for (Location location : LOCATIONS) {
+            for (String classpathPrefix : location.classpathPrefixes) {
+                for (String resource : withPrefix(sorted, classpathPrefix)) {
+                    String path = location.urlPrefix + resource.substring(classpathPrefix.length());
+                    if (!path.isEmpty() && !path.startsWith(VAADIN_DYNAMIC)) {
+                        publicResources.putIfAbsent(path, resource);
+                    }
+                }
+            }
+        }
+        Map<String, String> aliases = new HashMap<>();
+        publicResources.forEach((path, resource) -> {
+            if (path.startsWith(WEBJARS)) {
+                aliases.putIfAbsent(BOWER_COMPONENTS + path.substring(WEBJARS.length()), resource);
+            } else if (path.startsWith(VAADIN_PUSH_SOCKJS)) {
+                aliases.put(VAADIN_PUSH + path.substring(VAADIN_PUSH_SOCKJS.length()), resource);
+            }
+        });
+        aliases.forEach((path, resource) -> {
+            if (path.startsWith(VAADIN_PUSH)) {
+                publicResources.put(path, resource);
+            } else {
+                publicResources.putIfAbsent(path, resource);
+            }
+        });
+        return new StaticResourceIndex(
+            Collections.unmodifiableNavigableSet(sorted), Collections.unmodifiableMap(publicResources)
+        );
+    }
+
+    /**
+     * Checks if the given resource is present on the classpath.
+     *
+     * @param resource path of the resource relative to its classpath element.
+     * @return {@literal true} if the resource exists, otherwise {@literal false}.
+     */
+    public boolean contains(String resource) {
+        return resources.contains(resource);
+    }
+
+    /**
+     * Gets all the classpath resources.
+     *
+     * @return a sorted, unmodifiable view of resources paths.
+     */
+    public NavigableSet<String> resources() {
+        return resources;
+    }
+
+    /**
+     * Gets the classpath resources whose path starts with the given prefix.
+     *
+     * @param prefix the path prefix
+     * @return a sorted, unmodifiable view of matching resources paths.
+     */
+    public NavigableSet<String> withPrefix(String prefix) {
+        return withPrefix(resources, prefix);
+    }
+
+    /**
+     * Resolves a public URL path to the classpath location of the resource to serve.
+     *
+     * @param path URL path relative to the mount point, with or without leading slash.
+     * @return the classpath location of the resource, or an empty {@link Optional} if no resource is served at the given path.
+     */
+    public Optional<String> resolvePublic(String path) {
+        String normalized = path.startsWith("/") ? path.substring(1) : path;
+        return Optional.ofNullable(publicResources.get(normalized));
+    }
+
+    /**
+     * Checks if the given URL path belongs to a location reserved to static resources,
+     * so that a request for a missing resource should not be forwarded to Vaadin.
+     *
+     * @param path URL path relative to the mount point, with or without leading slash.
+     * @return {@literal true} if the path is reserved to static resources, otherwise {@literal false}.
+     */
+    public static boolean isStaticPath(String path) {
+        return STATIC_PATHS.find(path).orElse(Boolean.FALSE);
+    }
+
+    private static NavigableSet<String> withPrefix(NavigableSet<String> resources, String prefix) {
+        if (prefix.isEmpty()) {
+            return resources;
+        }
+        return resources.subSet(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private static final class Location {
+        private final String urlPrefix;
+        private final List<String> classpathPrefixes;
+
+        private Location(String urlPrefix, String... classpathPrefixes) {
+            this.urlPrefix = urlPrefix;
+            this.classpathPrefixes = Arrays.asList(classpathPrefixes);
+        }
+    }
+}
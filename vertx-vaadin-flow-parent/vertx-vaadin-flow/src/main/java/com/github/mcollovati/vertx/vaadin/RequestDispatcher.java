@@ -0,0 +1,132 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.vaadin;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import com.github.mcollovati.vertx.support.PathPrefixTrie;
+import com.github.mcollovati.vertx.support.StaticResourceIndex;
+import com.vaadin.flow.shared.ApplicationConstants;
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * Classifies each request once, by path prefix, so that following handlers can be
+ * enabled only for the relevant kind of request without matching regular expressions.
+ *
+ * Requests for the mount point without trailing slash are redirected to mountPoint/.
+ */
+final class RequestDispatcher implements Handler<RoutingContext> {
+
+    /**
+     * Kind of request.
+     */
+    enum RequestType {
+        /**
+         * Static resource, served without session.
+         */
+        STATIC,
+        /**
+         * SockJS push communication.
+         */
+        PUSH,
+        /**
+         * Dynamic resources and uploads under VAADIN/dynamic.
+         */
+        DYNAMIC,
+        /**
+         * Any other request handled by Vaadin.
+         */
+        VAADIN
+    }
+
+    private static final String REQUEST_TYPE_KEY = RequestDispatcher.class.getName() + ".requestType";
+
+    private final PathPrefixTrie<RequestType> prefixes;
+    private final StaticResourceIndex staticResources;
+    private final String pushPrefix;
+
+    RequestDispatcher(PathPrefixTrie<RequestType> prefixes, StaticResourceIndex staticResources, String pushPrefix) {
+        this.prefixes = prefixes;
+        this.staticResources = staticResources;
+        this.pushPrefix = pushPrefix;
+    }
+
+    @Override
+    public void handle(RoutingContext routingContext) {
+        String path = routingContext.normalisedPath();
+        String mountPoint = routingContext.mountPoint();
+        if (mountPoint != null && path.startsWith(mountPoint)) {
+            path = path.substring(mountPoint.length());
+        }
+        if (path.isEmpty()) {
+            routingContext.response()
+                .putHeader(HttpHeaders.LOCATION, routingContext.request().uri() + VertxVaadin.SLASH)
+                .setStatusCode(302).end();
+            return;
+        }
+        routingContext.put(REQUEST_TYPE_KEY, classify(routingContext, path));
+        routingContext.next();
+    }
+
+    private RequestType classify(RoutingContext routingContext, String path) {
+        if (path.startsWith(pushPrefix) && ApplicationConstants.REQUEST_TYPE_PUSH.equals(
+            routingContext.request().getParam(ApplicationConstants.REQUEST_TYPE_PARAMETER))) {
+            return RequestType.PUSH;
+        }
+        return prefixes.find(path).orElseGet(() ->
+            staticResources.resolvePublic(path).isPresent() ? RequestType.STATIC : RequestType.VAADIN
+        );
+    }
+
+    /**
+     * Gets the type assigned to the request by the dispatcher.
+     *
+     * @param routingContext the routing context
+     * @return the request type
+     */
+    static RequestType requestType(RoutingContext routingContext) {
+        return routingContext.get(REQUEST_TYPE_KEY);
+    }
+
+    /**
+     * Wraps a handler so that it is invoked only for the given request types;
+     * other requests are passed to the next handler.
+     *
+     * @param types   the request types the handler applies to
+     * @param handler the handler
+     * @return the wrapping handler
+     */
+    static Handler<RoutingContext> on(Set<RequestType> types, Handler<RoutingContext> handler) {
+        Set<RequestType> enabled = EnumSet.copyOf(types);
+        return routingContext -> {
+            if (enabled.contains(requestType(routingContext))) {
+                handler.handle(routingContext);
+            } else {
+                routingContext.next();
+            }
+        };
+    }
+}
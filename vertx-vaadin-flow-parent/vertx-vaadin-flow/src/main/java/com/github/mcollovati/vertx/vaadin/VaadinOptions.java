@@ -25,11 +25,14 @@ package com.github.mcollovati.vertx.vaadin;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.stream.Collectors;
 
+import com.github.mcollovati.vertx.http.HttpServerResponseOutputStream;
+import com.github.mcollovati.vertx.vaadin.sockjs.communication.PushBackpressurePolicy;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
@@ -40,6 +43,12 @@ import static io.vertx.ext.web.handler.SessionHandler.DEFAULT_SESSION_TIMEOUT;
 
 public final class VaadinOptions {
 
+    public static final long DEFAULT_REQUEST_BODY_LIMIT = 10 * 1024 * 1024;
+    public static final long DEFAULT_STATIC_ASSET_CACHE_SIZE = 32 * 1024 * 1024;
+    public static final long DEFAULT_SESSION_PASSIVATION_IDLE_TIME = 5 * 60 * 1000;
+    public static final int DEFAULT_PUSH_COALESCING_MAX_PENDING = 100;
+    public static final long DEFAULT_PUSH_BACKPRESSURE_BYTE_BUDGET = 1024 * 1024;
+    public static final long DEFAULT_PUSH_BACKPRESSURE_TIME_BUDGET = 30 * 1000;
 
     private final JsonObject config;
 
@@ -83,6 +92,76 @@ public final class VaadinOptions {
         return config.getLong("sessionTimeout", DEFAULT_SESSION_TIMEOUT);
     }
 
+    public int responseBufferSize() {
+        return config.getInteger("responseBufferSize", HttpServerResponseOutputStream.DEFAULT_BUFFER_SIZE);
+    }
+
+    public long requestBodyLimit() {
+        return config.getLong("requestBodyLimit", DEFAULT_REQUEST_BODY_LIMIT);
+    }
+
+    public long uploadBodyLimit() {
+        return config.getLong("uploadBodyLimit", -1L);
+    }
+
+    public long staticAssetCacheSize() {
+        return config.getLong("staticAssetCacheSize", DEFAULT_STATIC_ASSET_CACHE_SIZE);
+    }
+
+    public Optional<String> sessionSnapshotFile() {
+        return Optional.ofNullable(config.getString("sessionSnapshotFile"));
+    }
+
+    public Optional<String> sessionPassivationDirectory() {
+        return Optional.ofNullable(config.getString("sessionPassivationDirectory"));
+    }
+
+    public long sessionPassivationIdleTime() {
+        return config.getLong("sessionPassivationIdleTime", DEFAULT_SESSION_PASSIVATION_IDLE_TIME);
+    }
+
+    public long sessionWriteBehindInterval() {
+        return config.getLong("sessionWriteBehindInterval", 0L);
+    }
+
+    public Optional<Integer> sessionCompressionThreshold() {
+        return Optional.ofNullable(config.getInteger("sessionCompressionThreshold"));
+    }
+
+    public Optional<String> sessionAttributeCodec() {
+        return Optional.ofNullable(config.getString("sessionAttributeCodec"));
+    }
+
+    public List<String> sessionAttributeClasses() {
+        return config.getJsonArray("sessionAttributeClasses", new JsonArray())
+            .stream().filter(String.class::isInstance).map(String.class::cast)
+            .collect(Collectors.toList());
+    }
+
+    public long pushCoalescingWindow() {
+        return config.getLong("pushCoalescingWindow", 0L);
+    }
+
+    public long pushCoalescingMaxDelay() {
+        return config.getLong("pushCoalescingMaxDelay", 4 * pushCoalescingWindow());
+    }
+
+    public int pushCoalescingMaxPending() {
+        return config.getInteger("pushCoalescingMaxPending", DEFAULT_PUSH_COALESCING_MAX_PENDING);
+    }
+
+    public PushBackpressurePolicy pushBackpressurePolicy() {
+        return PushBackpressurePolicy.valueOf(config.getString("pushBackpressurePolicy", "pause").toUpperCase(Locale.ROOT));
+    }
+
+    public long pushBackpressureByteBudget() {
+        return config.getLong("pushBackpressureByteBudget", DEFAULT_PUSH_BACKPRESSURE_BYTE_BUDGET);
+    }
+
+    public long pushBackpressureTimeBudget() {
+        return config.getLong("pushBackpressureTimeBudget", DEFAULT_PUSH_BACKPRESSURE_TIME_BUDGET);
+    }
+
     public Optional<String> serviceName() {
         return Optional.ofNullable(config.getString("serviceName"));
     }
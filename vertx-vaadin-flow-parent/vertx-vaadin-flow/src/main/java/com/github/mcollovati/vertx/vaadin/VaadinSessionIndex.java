@@ -0,0 +1,117 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.vaadin;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.server.WrappedSession;
+
+/**
+ * Index of the {@link VaadinSession}s of a service by the id of their underlying session.
+ *
+ * The id of the underlying session may change during the lifetime of a {@link VaadinSession},
+ * for example when the session is reinitialized after login; {@link #update(VaadinSession)}
+ * must be called once the id may have changed, such as at the end of every request,
+ * so that lookups stay plain map reads.
+ */
+final class VaadinSessionIndex {
+
+    private final Map<String, VaadinSession> sessionsById = new ConcurrentHashMap<>();
+    private final Map<VaadinSession, String> sessionIds = new ConcurrentHashMap<>();
+
+    void add(VaadinSession vaadinSession) {
+        String sessionId = currentId(vaadinSession);
+        if (sessionId != null) {
+            sessionIds.compute(vaadinSession, (key, previousId) -> rekey(key, previousId, sessionId));
+        }
+    }
+
+    /**
+     * Re-keys an indexed Vaadin session if the id of its underlying session has changed.
+     *
+     * Sessions that are not indexed, for example because they have already been removed, are ignored.
+     *
+     * @param vaadinSession the Vaadin session
+     */
+    void update(VaadinSession vaadinSession) {
+        String indexedId = sessionIds.get(vaadinSession);
+        if (indexedId == null) {
+            return;
+        }
+        String sessionId = currentId(vaadinSession);
+        if (sessionId == null) {
+            remove(vaadinSession);
+        } else if (!sessionId.equals(indexedId)) {
+            sessionIds.computeIfPresent(vaadinSession, (key, previousId) -> rekey(key, previousId, sessionId));
+        }
+    }
+
+    void remove(VaadinSession vaadinSession) {
+        String sessionId = sessionIds.remove(vaadinSession);
+        if (sessionId != null) {
+            sessionsById.remove(sessionId, vaadinSession);
+        }
+    }
+
+    /**
+     * Gets the Vaadin session whose underlying session currently has the given id.
+     *
+     * @param sessionId the session id
+     * @return the Vaadin session, or an empty optional if none matches
+     */
+    Optional<VaadinSession> find(String sessionId) {
+        return Optional.ofNullable(sessionsById.get(sessionId))
+            .filter(session -> sessionId.equals(currentId(session)));
+    }
+
+    int size() {
+        return sessionIds.size();
+    }
+
+    // Called while holding the entry of the session in sessionIds, so that changes to the same session are serialized
+    private String rekey(VaadinSession vaadinSession, String previousId, String sessionId) {
+        if (!sessionId.equals(previousId)) {
+            if (previousId != null) {
+                sessionsById.remove(previousId, vaadinSession);
+            }
+            sessionsById.put(sessionId, vaadinSession);
+        }
+        return sessionId;
+    }
+
+    private static String currentId(VaadinSession vaadinSession) {
+        WrappedSession session = vaadinSession.getSession();
+        if (session == null) {
+            return null;
+        }
+        try {
+            return session.getId();
+        } catch (IllegalStateException ex) {
+            // Session already invalidated
+            return null;
+        }
+    }
+}
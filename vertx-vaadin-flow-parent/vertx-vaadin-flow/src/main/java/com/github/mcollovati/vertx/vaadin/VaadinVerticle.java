@@ -99,6 +99,7 @@ public class VaadinVerticle extends AbstractVerticle {
     private static final Logger log = LoggerFactory.getLogger(VaadinVerticle.class);
 
     private HttpServer httpServer;
+    private VertxVaadin vertxVaadin;
     private VertxVaadinService vaadinService;
 
     @Override
@@ -108,6 +109,7 @@ public class VaadinVerticle extends AbstractVerticle {
         prepareConfig()
             .compose(vaadinOptions -> StartupContext.of(vertx, vaadinOptions))
             .compose(this::initVertxVaadin)
+            .compose(this::restoreSessions)
             .compose(this::startupHttpServer)
             .<Void>map(router -> {
                 serviceInitialized(vaadinService, router);
@@ -115,6 +117,49 @@ public class VaadinVerticle extends AbstractVerticle {
             }).setHandler(startPromise.future());
     }
 
+    private Future<VertxVaadin> restoreSessions(final VertxVaadin vertxVaadin) {
+        // Sessions must be in place before the server accepts requests
+        return vertxVaadin.restoreSessions()
+            .map(restored -> {
+                if (restored > 0) {
+                    log.info("Restored {} sessions from snapshot", restored);
+                }
+                return vertxVaadin;
+            })
+            .otherwise(ex -> {
+                log.warn("Cannot restore sessions from snapshot", ex);
+                return vertxVaadin;
+            });
+    }
+
+    private Future<Integer> snapshotSessions() {
+        if (vertxVaadin == null) {
+            return Future.succeededFuture(0);
+        }
+        return vertxVaadin.snapshotSessions()
+            .map(saved -> {
+                if (saved > 0) {
+                    log.info("Saved {} sessions to snapshot", saved);
+                }
+                return saved;
+            })
+            .otherwise(ex -> {
+                log.error("Cannot save sessions to snapshot", ex);
+                return 0;
+            });
+    }
+
+    private Future<Void> sessionStoreClosed() {
+        if (vertxVaadin == null) {
+            return Future.succeededFuture();
+        }
+        return vertxVaadin.sessionStoreClosed()
+            .otherwise(ex -> {
+                log.error("Cannot write pending sessions", ex);
+                return null;
+            });
+    }
+
     private Future<Router> startupHttpServer(final VertxVaadin vertxVaadin) {
         String mountPoint = vertxVaadin.config().mountPoint();
         HttpServerOptions serverOptions = new HttpServerOptions().setCompressionSupported(true);
@@ -193,14 +238,23 @@ public class VaadinVerticle extends AbstractVerticle {
     @Override
     public void stop(final Promise<Void> stopPromise) {
         log.info("Stopping vaadin verticle " + getClass().getName());
-        try {
-            vaadinService.destroy();
-        } catch (Exception ex) {
-            log.error("Error during Vaadin service destroy", ex);
-        }
+        // Requests must not change sessions while they are saved
+        httpServer.close(serverClosed -> snapshotSessions().setHandler(snapshot -> {
+            Future<Void> storeClosed;
+            try {
+                vaadinService.destroy();
+                storeClosed = sessionStoreClosed();
+            } catch (Exception ex) {
+                log.error("Error during Vaadin service destroy", ex);
+                // Destroy listeners may not have run, so the store may never be closed
+                storeClosed = Future.succeededFuture();
+            }
 
-        httpServer.close(stopPromise.future());
-        log.info("Stopped vaadin verticle " + getClass().getName());
+            storeClosed.setHandler(closed -> {
+                stopPromise.handle(serverClosed);
+                log.info("Stopped vaadin verticle " + getClass().getName());
+            });
+        }));
     }
 
     // From VaadinServlet
@@ -282,7 +336,7 @@ public class VaadinVerticle extends AbstractVerticle {
             Promise<Void> initializerPromise = Promise.promise();
             runInitializers(startupContext, initializerPromise, map);
             initializerPromise.future().map(unused -> {
-                VertxVaadin vertxVaadin = createVertxVaadin(startupContext);
+                vertxVaadin = createVertxVaadin(startupContext);
                 vaadinService = vertxVaadin.vaadinService();
                 return vertxVaadin;
             }).setHandler(event.future());
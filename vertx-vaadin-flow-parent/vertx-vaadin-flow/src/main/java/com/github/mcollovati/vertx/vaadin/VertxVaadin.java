@@ -24,37 +24,54 @@ package com.github.mcollovati.vertx.vaadin;
 
 import com.github.mcollovati.vertx.Sync;
 import com.github.mcollovati.vertx.http.HttpReverseProxy;
+import com.github.mcollovati.vertx.http.StaticAssetCache;
+import com.github.mcollovati.vertx.http.StaticResourceHandler;
+import com.github.mcollovati.vertx.http.StreamingBodyHandler;
+import com.github.mcollovati.vertx.support.PathPrefixTrie;
 import com.github.mcollovati.vertx.support.StartupContext;
+import com.github.mcollovati.vertx.support.StaticResourceIndex;
+import com.github.mcollovati.vertx.vaadin.RequestDispatcher.RequestType;
 import com.github.mcollovati.vertx.vaadin.sockjs.communication.SockJSPushConnection;
 import com.github.mcollovati.vertx.vaadin.sockjs.communication.SockJSPushHandler;
+import com.github.mcollovati.vertx.web.LazySessionHandler;
+import com.github.mcollovati.vertx.web.serialization.AttributeCodec;
+import com.github.mcollovati.vertx.web.serialization.CompactBinaryCodec;
+import com.github.mcollovati.vertx.web.serialization.JavaSerializationCodec;
+import com.github.mcollovati.vertx.web.serialization.SerializationSupport;
+import com.github.mcollovati.vertx.web.sstore.ExtendedLocalSessionStore;
 import com.github.mcollovati.vertx.web.sstore.ExtendedSessionStore;
+import com.github.mcollovati.vertx.web.sstore.WriteBehindSessionStore;
 import com.vaadin.flow.server.DevModeHandler;
 import com.vaadin.flow.server.ServiceException;
+import com.vaadin.flow.server.VaadinSession;
 import com.vaadin.flow.server.WrappedSession;
-import com.vaadin.flow.shared.ApplicationConstants;
 import com.vaadin.flow.shared.Registration;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.VertxException;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.eventbus.MessageConsumer;
 import io.vertx.core.eventbus.MessageProducer;
-import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.BodyHandler;
-import io.vertx.ext.web.handler.SessionHandler;
 import io.vertx.ext.web.handler.StaticHandler;
 import io.vertx.ext.web.handler.sockjs.SockJSHandler;
 import io.vertx.ext.web.handler.sockjs.SockJSHandlerOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.Set;
 
 public class VertxVaadin {
 
@@ -68,6 +85,10 @@ public class VertxVaadin {
     private final VertxVaadinOverrides overrides;
     private final Router router;
     private final ExtendedSessionStore sessionStore;
+    // The store sessions are snapshotted from, also when it is wrapped by the write behind store
+    private final ExtendedLocalSessionStore localSessionStore;
+    private final Promise<Void> sessionStoreClosed = Promise.promise();
+    private final StaticResourceIndex staticResources;
 
     static final String SLASH = "/";
     private static final String META_INF = "META-INF";
@@ -84,6 +105,7 @@ public class VertxVaadin {
     static final String FRONTEND = "frontend";
     private static final String FRONTEND_ES_6 = FRONTEND + "-es6";
     private static final String DYNAMIC = "dynamic";
+    private static final String VAADIN_UPLOAD = SLASH + VAADIN + SLASH + DYNAMIC + SLASH + "resource" + SLASH_STAR;
 
     static {
         String version = "0.0.0";
@@ -113,6 +135,7 @@ public class VertxVaadin {
         Objects.requireNonNull(startupContext);
         this.vertx = Objects.requireNonNull(startupContext.vertx());
         this.config = startupContext.vaadinOptions();
+        this.staticResources = startupContext.staticResources();
 
         if (vertxVaadinOverrides == null) {
             overrides = new VertxVaadinOverrides.Default();
@@ -123,9 +146,17 @@ public class VertxVaadin {
         service = overrides.createVaadinService(startupContext);
 
         logger.trace("Configuring SockJS Push connection");
-        service.addUIInitListener(event ->
-                event.getUI().getInternals().setPushConnection(new SockJSPushConnection(event.getUI()))
-        );
+        service.addUIInitListener(event -> {
+            SockJSPushConnection pushConnection = new SockJSPushConnection(event.getUI());
+            pushConnection.setBackpressure(config.pushBackpressurePolicy(), config.pushBackpressureByteBudget(),
+                config.pushBackpressureTimeBudget());
+            pushConnection.setBackpressureStats(service.getPushBackpressureStats());
+            if (config.pushCoalescingWindow() > 0) {
+                pushConnection.setCoalescing(config.pushCoalescingWindow(), config.pushCoalescingMaxDelay(),
+                    config.pushCoalescingMaxPending());
+            }
+            event.getUI().getInternals().setPushConnection(pushConnection);
+        });
 
         try {
             service.init();
@@ -133,10 +164,16 @@ public class VertxVaadin {
             throw new VertxException("Cannot initialize Vaadin service", ex);
         }
 
-        if (sessionStore == null) {
-            this.sessionStore = overrides.createSessionStore(vertx);
+        ExtendedSessionStore store = sessionStore == null
+            ? overrides.createSessionStore(vertx, config, createSessionSerialization()) : sessionStore;
+        this.localSessionStore = store instanceof ExtendedLocalSessionStore ? (ExtendedLocalSessionStore) store : null;
+        if (config.sessionWriteBehindInterval() > 0) {
+            WriteBehindSessionStore writeBehindStore = WriteBehindSessionStore.create(vertx, store, config.sessionWriteBehindInterval());
+            service.addServiceDestroyListener(event -> writeBehindStore.close(sessionStoreClosed));
+            this.sessionStore = writeBehindStore;
         } else {
-            this.sessionStore = sessionStore;
+            service.addServiceDestroyListener(event -> sessionStoreClosed.tryComplete());
+            this.sessionStore = store;
         }
 
         addSessionExpirationHandler();
@@ -147,22 +184,111 @@ public class VertxVaadin {
         overrides.serviceInitialized();
     }
 
-    private void configureSessionStore() {
-        final Registration sessionInitListenerReg = service.addSessionInitListener(event -> {
-            MessageConsumer<String> consumer = sessionExpiredHandler(vertx, msg ->
-                Optional.of(event.getSession().getSession())
-                    .filter(session -> msg.body().equals(session.getId()))
-                    .ifPresent(WrappedSession::invalidate));
-            AtomicReference<Registration> sessionDestroyListenerUnregister = new AtomicReference<>();
-            sessionDestroyListenerUnregister.set(
-                event.getService().addSessionDestroyListener(ev2 -> {
-                    consumer.unregister();
-                    sessionDestroyListenerUnregister.get().remove();
-                })
-            );
+    private SerializationSupport createSessionSerialization() {
+        if (!config.sessionAttributeCodec().isPresent() && !config.sessionCompressionThreshold().isPresent()) {
+            return SerializationSupport.DEFAULT;
+        }
+        AttributeCodec codec = config.sessionAttributeCodec().map(this::createAttributeCodec)
+            .orElse(JavaSerializationCodec.INSTANCE);
+        return SerializationSupport.create(codec, config.sessionCompressionThreshold().orElse(-1));
+    }
+
+    private AttributeCodec createAttributeCodec(String name) {
+        if ("java".equals(name)) {
+            return JavaSerializationCodec.INSTANCE;
+        }
+        if (!"compact".equals(name)) {
+            throw new VertxException("Unknown session attribute codec " + name);
+        }
+        CompactBinaryCodec.Builder builder = CompactBinaryCodec.builder();
+        List<String> classNames = config.sessionAttributeClasses();
+        for (int id = 0; id < classNames.size(); id++) {
+            try {
+                builder.register(Class.forName(classNames.get(id), false, service.getClassLoader()), id);
+            } catch (ClassNotFoundException ex) {
+                throw new VertxException("Cannot register session attribute class " + classNames.get(id), ex);
+            }
+        }
+        return builder.build();
+    }
 
+    private void configureSessionStore() {
+        // A single consumer per service looks up expired sessions in an index,
+        // instead of registering a consumer for every Vaadin session
+        final VaadinSessionIndex sessions = service.getSessionIndex();
+        final MessageConsumer<String> consumer = sessionExpiredHandler(vertx, msg ->
+            sessions.find(msg.body())
+                .map(VaadinSession::getSession)
+                .ifPresent(WrappedSession::invalidate));
+        final Registration sessionInitListenerReg = service.addSessionInitListener(event ->
+            sessions.add(event.getSession()));
+        final Registration sessionDestroyListenerReg = service.addSessionDestroyListener(event ->
+            sessions.remove(event.getSession()));
+        service.addServiceDestroyListener(event -> {
+            sessionInitListenerReg.remove();
+            sessionDestroyListenerReg.remove();
+            consumer.unregister();
         });
-        service.addServiceDestroyListener(event -> sessionInitListenerReg.remove());
+    }
+
+    /**
+     * Restores sessions from the snapshot file set by the {@code sessionSnapshotFile} option,
+     * if the session store is an {@link ExtendedLocalSessionStore}.
+     *
+     * @return a future completed with the number of restored sessions
+     */
+    public Future<Integer> restoreSessions() {
+        Promise<Integer> promise = Promise.promise();
+        Optional<Path> snapshotFile = config.sessionSnapshotFile().map(Paths::get);
+        if (snapshotFile.isPresent() && localSessionStore != null) {
+            localSessionStore.restore(snapshotFile.get(), promise);
+        } else {
+            promise.complete(0);
+        }
+        return promise.future();
+    }
+
+    /**
+     * Writes all sessions to the snapshot file set by the {@code sessionSnapshotFile} option,
+     * if the session store is an {@link ExtendedLocalSessionStore}.
+     * Sessions waiting in the write behind queue are written to the store first.
+     *
+     * @return a future completed with the number of saved sessions
+     */
+    public Future<Integer> snapshotSessions() {
+        Promise<Integer> promise = Promise.promise();
+        Optional<Path> snapshotFile = config.sessionSnapshotFile().map(Paths::get);
+        if (snapshotFile.isPresent() && localSessionStore != null) {
+            flushPendingSessions().setHandler(flushed -> localSessionStore.snapshot(snapshotFile.get(), promise));
+        } else {
+            promise.complete(0);
+        }
+        return promise.future();
+    }
+
+    private Future<Void> flushPendingSessions() {
+        Promise<Void> promise = Promise.promise();
+        if (sessionStore instanceof WriteBehindSessionStore) {
+            ((WriteBehindSessionStore) sessionStore).flush(res -> {
+                if (res.failed()) {
+                    logger.error("Cannot write pending sessions before snapshot", res.cause());
+                }
+                promise.complete();
+            });
+        } else {
+            promise.complete();
+        }
+        return promise.future();
+    }
+
+    /**
+     * Gets a future completed once the Vaadin service has been destroyed and sessions
+     * waiting in the write behind queue, if any, have been written.
+     *
+     * @return a future completed when the session store is closed
+     */
+    public Future<Void> sessionStoreClosed() {
+        return sessionStoreClosed.future();
     }
 
     public Router router() {
@@ -184,34 +310,43 @@ public class VertxVaadin {
 
     private Router initRouter() {
         logger.debug("Initializing router");
-        String sessionCookieName = sessionCookieName();
-        SessionHandler sessionHandler = SessionHandler.create(sessionStore)
+        // New sessions are created only when Vaadin asks for them
+        LazySessionHandler lazySessionHandler = LazySessionHandler.create(sessionStore)
             .setSessionTimeout(config().sessionTimeout())
-            .setSessionCookieName(sessionCookieName)
+            .setSessionCookieName(sessionCookieName())
             .setNagHttps(false)
             .setCookieHttpOnlyFlag(true);
 
         final Router vertxRouter = Router.router(vertx);
-        // Redirect mountPoint to mountPoint/
-        vertxRouter.routeWithRegex("^$").handler(ctx -> ctx.response()
-            .putHeader(HttpHeaders.LOCATION, ctx.request().uri() + SLASH)
-            .setStatusCode(302).end()
-        );
-
-        vertxRouter.route().handler(BodyHandler.create());
-
-        // Disable SessionHandler for /VAADIN/ static resources
-        vertxRouter.routeWithRegex("^(?!/(" + VAADIN + "(?!/" + DYNAMIC + ")|" + FRONTEND + "|" + FRONTEND_ES_6 + "|" + WEBJARS + "|" + WEBROOT + ")/).*$").handler(sessionHandler);
-
-        // Forward vaadinPush javascript to sockjs implementation
-        vertxRouter.routeWithRegex(SLASH + VAADIN_STATIC + "/push/vaadinPush(?<min>-min)?\\.js(?<compressed>\\.gz)?")
-            .handler(ctx -> ctx.reroute(
-                String.format("%s/%s/push/vaadinPushSockJS%s.js%s", ctx.mountPoint(),
-                        VAADIN_STATIC,
-                    Objects.toString(ctx.request().getParam("min"), ""),
-                    Objects.toString(ctx.request().getParam("compressed"), "")
-                )
-            ));
+
+        // Classify requests once; every kind of request then goes only through its own handlers.
+        // Also redirects mountPoint to mountPoint/
+        PathPrefixTrie<RequestType> prefixes = PathPrefixTrie.<RequestType>builder()
+            .add(VAADIN, RequestType.STATIC)
+            .add(VAADIN + SLASH + DYNAMIC, RequestType.DYNAMIC)
+            .add(FRONTEND, RequestType.STATIC)
+            .add(FRONTEND_ES_6, RequestType.STATIC)
+            .add(WEBJARS, RequestType.STATIC)
+            .add(WEBROOT, RequestType.STATIC)
+            .build();
+        String pushPrefix = config.pushURL().replaceFirst("/$", "");
+        vertxRouter.route().handler(new RequestDispatcher(prefixes, staticResources, pushPrefix));
+
+        initSockJS(vertxRouter, lazySessionHandler);
+
+        // Uploads are streamed to the receiver, other Vaadin requests get a size limited in memory body;
+        // static resources and push requests do not need the body at all
+        Set<RequestType> vaadinRequests = EnumSet.of(RequestType.DYNAMIC, RequestType.VAADIN);
+        BodyHandler bodyHandler = BodyHandler.create(false).setBodyLimit(config().requestBodyLimit());
+        vertxRouter.post(VAADIN_UPLOAD).handler(StreamingBodyHandler.create(config().uploadBodyLimit()));
+        vertxRouter.route().handler(RequestDispatcher.on(vaadinRequests, ctx -> {
+            if (StreamingBodyHandler.bodyStream(ctx).isPresent()) {
+                ctx.next();
+            } else {
+                bodyHandler.handle(ctx);
+            }
+        }));
+        vertxRouter.route().handler(RequestDispatcher.on(vaadinRequests, lazySessionHandler));
 
         if (DevModeHandler.getDevModeHandler() != null) {
             logger.info("Starting DevModeHandler proxy");
@@ -219,49 +354,50 @@ public class VertxVaadin {
             vertxRouter.routeWithRegex(".+\\.js$").blockingHandler(proxy::forward);
         }
 
-        //vaadinRouter.route(SLASH + VAADIN + SLASH + DYNAMIC + SLASH_STAR).handler(this::handleVaadinRequest);
-        final ClassLoader classLoader = getClass().getClassLoader();
-
-        final StaticHandler webRoot = StaticHandler.create(WEBROOT, classLoader);
-
-        vertxRouter.route(SLASH + VAADIN_STATIC_CLIENT + SLASH_STAR)
-                .handler(createStaticHandlerForMetaInfResources(VAADIN_STATIC_CLIENT, classLoader));
-        vertxRouter.route(SLASH + VAADIN_BUILD + SLASH_STAR)
-                .handler(StaticHandler.create(META_INF + SLASH + VAADIN_BUILD, classLoader));
-        vertxRouter.route(SLASH + VAADIN_STATIC + SLASH_STAR)
-                .handler(StaticHandler.create(VAADIN_STATIC, classLoader))
-                .handler(createStaticHandlerForMetaInfResources(VAADIN_STATIC, classLoader));
-        vertxRouter.routeWithRegex(SLASH + VAADIN + "(?!/" + DYNAMIC + ")/.*")
-                .handler(StaticHandler.create(VAADIN, classLoader));
-        vertxRouter.route(SLASH + WEBROOT + SLASH_STAR)
-                .handler(webRoot);
-        vertxRouter.route(SLASH + WEBJARS + SLASH_STAR)
-                .handler(webRoot)
-                .handler(createStaticHandlerForMetaInfResources(WEBJARS, classLoader));
-        vertxRouter.routeWithRegex(SLASH + FRONTEND + "/bower_components/(?<" + WEBJAR + ">.*)")
-                .handler(ctx -> {
-                    String rerouteTo = String.format("%s/%s/%s",
-                            ctx.mountPoint(), WEBJARS, Objects.toString(ctx.request().getParam(WEBJAR), ""));
-                    logger.trace("Rerouting bower component to {}", rerouteTo);
-                    ctx.reroute(rerouteTo);
-                }
-            );
-
-        logger.trace("Setup fronted routes");
-        vertxRouter.route(SLASH + FRONTEND + SLASH_STAR)
-                .handler(StaticHandler.create(FRONTEND, classLoader))
-                .handler(webRoot)
-                .handler(createStaticHandlerForMetaInfResources(FRONTEND, classLoader));
-        vertxRouter.route(SLASH + FRONTEND_ES_6 + SLASH_STAR)
-                .handler(StaticHandler.create(FRONTEND_ES_6, classLoader))
-                .handler(createStaticHandlerForMetaInfResources(FRONTEND_ES_6, classLoader));
-
-        initSockJS(vertxRouter, sessionHandler);
-
-        vertxRouter.route(SLASH_STAR).handler(StaticHandler.create(META_INF_RESOURCES, classLoader));
+        // Static resources are resolved through the index built at startup, that also maps
+        // vaadinPush script to its SockJS implementation and bower components to webjars.
+        // In development mode resources missing from the index are still looked up by StaticHandlers,
+        // since they may be served from the file system or created after startup; for the same reason
+        // assets are cached in memory only in production mode
+        StaticAssetCache assetCache = null;
+        if (config().productionMode() && config().staticAssetCacheSize() > 0) {
+            assetCache = new StaticAssetCache(vertx, staticResources, config().staticAssetCacheSize());
+        }
+        vertxRouter.route().handler(RequestDispatcher.on(EnumSet.of(RequestType.STATIC),
+            StaticResourceHandler.create(staticResources, !config().productionMode(), assetCache)));
+        if (!config().productionMode()) {
+            final ClassLoader classLoader = getClass().getClassLoader();
+            final StaticHandler webRoot = StaticHandler.create(WEBROOT, classLoader);
+
+            vertxRouter.route(SLASH + VAADIN_STATIC_CLIENT + SLASH_STAR)
+                    .handler(createStaticHandlerForMetaInfResources(VAADIN_STATIC_CLIENT, classLoader));
+            vertxRouter.route(SLASH + VAADIN_BUILD + SLASH_STAR)
+                    .handler(StaticHandler.create(META_INF + SLASH + VAADIN_BUILD, classLoader));
+            vertxRouter.route(SLASH + VAADIN_STATIC + SLASH_STAR)
+                    .handler(StaticHandler.create(VAADIN_STATIC, classLoader))
+                    .handler(createStaticHandlerForMetaInfResources(VAADIN_STATIC, classLoader));
+            vertxRouter.route(SLASH + VAADIN + SLASH_STAR)
+                    .handler(RequestDispatcher.on(EnumSet.of(RequestType.STATIC), StaticHandler.create(VAADIN, classLoader)));
+            vertxRouter.route(SLASH + WEBROOT + SLASH_STAR)
+                    .handler(webRoot);
+            vertxRouter.route(SLASH + WEBJARS + SLASH_STAR)
+                    .handler(webRoot)
+                    .handler(createStaticHandlerForMetaInfResources(WEBJARS, classLoader));
+            logger.trace("Setup fronted routes");
+            vertxRouter.route(SLASH + FRONTEND + SLASH_STAR)
+                    .handler(StaticHandler.create(FRONTEND, classLoader))
+                    .handler(webRoot)
+                    .handler(createStaticHandlerForMetaInfResources(FRONTEND, classLoader));
+            vertxRouter.route(SLASH + FRONTEND_ES_6 + SLASH_STAR)
+                    .handler(StaticHandler.create(FRONTEND_ES_6, classLoader))
+                    .handler(createStaticHandlerForMetaInfResources(FRONTEND_ES_6, classLoader));
+            vertxRouter.route(SLASH_STAR).handler(StaticHandler.create(META_INF_RESOURCES, classLoader));
+        }
 
-        overrides.addAdditionalRoutes(vertxRouter, sessionHandler, service);
+        overrides.addAdditionalRoutes(vertxRouter, lazySessionHandler.sessionHandler(), service);
 
+        // Streamed request body must be read outside the event loop
+        vertxRouter.post(VAADIN_UPLOAD).blockingHandler(this::handleVaadinRequest, false);
         vertxRouter.route(SLASH_STAR).handler(this::handleVaadinRequest);
         return vertxRouter;
     }
@@ -284,23 +420,16 @@ public class VertxVaadin {
         }
     }
 
-    private void initSockJS(final Router vaadinRouter, final SessionHandler sessionHandler) {
+    private void initSockJS(final Router vaadinRouter, final Handler<RoutingContext> sessionHandler) {
         try {
             SockJSHandlerOptions options = new SockJSHandlerOptions()
                     .setSessionTimeout(config().sessionTimeout())
                     .setHeartbeatInterval(service.getDeploymentConfiguration().getHeartbeatInterval() * 1000);
             SockJSHandler sockJSHandler = SockJSHandler.create(vertx, options);
-            SockJSPushHandler pushHandler = new SockJSPushHandler(service, sessionHandler, sockJSHandler);
-
-            String pushPath = config.pushURL().replaceFirst("/$", "") + SLASH_STAR;
-            logger.debug("Setup PUSH communication on {}", pushPath);
-            vaadinRouter.route(pushPath).handler(rc -> {
-                if (ApplicationConstants.REQUEST_TYPE_PUSH.equals(rc.request().getParam(ApplicationConstants.REQUEST_TYPE_PARAMETER))) {
-                    pushHandler.handle(rc);
-                } else {
-                    rc.next();
-                }
-            });
+            SockJSPushHandler pushHandler = new SockJSPushHandler(service, sessionHandler, sessionStore, sockJSHandler);
+
+            logger.debug("Setup PUSH communication on {}", config.pushURL());
+            vaadinRouter.route().handler(RequestDispatcher.on(EnumSet.of(RequestType.PUSH), pushHandler));
         } catch (final NoClassDefFoundError e) {
             logger.info("SockJSHandler not found on class path; SockJS support is disabled", e);
         }
@@ -327,7 +456,7 @@ public class VertxVaadin {
     }
 
     private static MessageProducer<String> sessionExpiredProducer(final VertxVaadinService service) {
-        return service.getVertx().eventBus().sender(VAADIN_SESSION_EXPIRED_ADDRESS);
+        return service.getVertx().eventBus().publisher(VAADIN_SESSION_EXPIRED_ADDRESS);
     }
 
     public static MessageConsumer<String> sessionExpiredHandler(final Vertx vertx, final Handler<Message<String>> handler) {
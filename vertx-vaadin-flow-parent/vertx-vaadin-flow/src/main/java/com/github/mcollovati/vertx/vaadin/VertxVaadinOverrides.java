@@ -1,6 +1,9 @@
 package com.github.mcollovati.vertx.vaadin;
 
+import java.nio.file.Paths;
+
 import com.github.mcollovati.vertx.support.StartupContext;
+import com.github.mcollovati.vertx.web.serialization.SerializationSupport;
 import com.github.mcollovati.vertx.web.sstore.ExtendedLocalSessionStore;
 import com.github.mcollovati.vertx.web.sstore.ExtendedSessionStore;
 import com.github.mcollovati.vertx.web.sstore.NearCacheSessionStore;
@@ -36,8 +39,45 @@ public interface VertxVaadinOverrides {
         return ExtendedLocalSessionStore.create(vertx);
     }
 
+    /**
+     * Called instead of {@link #createSessionStore(Vertx)} with the Vaadin options.
+     * When {@link VaadinOptions#sessionPassivationDirectory()} is set and Vert.x is not clustered,
+     * the default implementation creates a local store that passivates idle sessions to that directory,
+     * otherwise it calls {@link #createSessionStore(Vertx)}.
+     * @param vertx {@link Vertx} provided by {@link VaadinVerticle}.
+     * @param options {@link VaadinOptions} of the application.
+     */
+    default ExtendedSessionStore createSessionStore(final Vertx vertx, final VaadinOptions options) {
+        return options.sessionPassivationDirectory()
+            .filter(directory -> !vertx.isClustered())
+            .<ExtendedSessionStore>map(directory -> ExtendedLocalSessionStore.create(vertx,
+                ExtendedLocalSessionStore.DEFAULT_SESSION_MAP_NAME, ExtendedLocalSessionStore.DEFAULT_REAPER_INTERVAL,
+                Paths.get(directory), options.sessionPassivationIdleTime()))
+            .orElseGet(() -> createSessionStore(vertx));
+    }
+
+    /**
+     * Called instead of {@link #createSessionStore(Vertx, VaadinOptions)} with the session attribute
+     * serialization built from {@link VaadinOptions#sessionAttributeCodec()} and
+     * {@link VaadinOptions#sessionCompressionThreshold()}.
+     * When Vert.x is clustered and either option is set, the default implementation creates
+     * a {@link NearCacheSessionStore} that uses it, otherwise it calls {@link #createSessionStore(Vertx, VaadinOptions)}.
+     * @param vertx {@link Vertx} provided by {@link VaadinVerticle}.
+     * @param options {@link VaadinOptions} of the application.
+     * @param serialization session attribute codec and compression settings.
+     */
+    default ExtendedSessionStore createSessionStore(final Vertx vertx, final VaadinOptions options,
+                                                    final SerializationSupport serialization) {
+        if (vertx.isClustered() && serialization != SerializationSupport.DEFAULT) {
+            return NearCacheSessionStore.create(vertx, NearCacheSessionStore.DEFAULT_SESSION_MAP_NAME,
+                NearCacheSessionStore.DEFAULT_RETRY_TIMEOUT, NearCacheSessionStore.DEFAULT_REAPER_INTERVAL, serialization);
+        }
+        return createSessionStore(vertx, options);
+    }
+
     /**
      * Called during the end part of {@link VertxVaadin#initRouter} just before calling {@link VertxVaadin#initRouter}.
+     * Request body is only read for Vaadin requests; routes that need it should add their own {@link io.vertx.ext.web.handler.BodyHandler}.
      * @param vertxRouter {@link Router}
      * @param sessionHandler {@link SessionHandler}
      * @param service {@link VertxVaadinService} created from {@link #createVaadinService} which is called in the {@link VertxVaadin} constructor.
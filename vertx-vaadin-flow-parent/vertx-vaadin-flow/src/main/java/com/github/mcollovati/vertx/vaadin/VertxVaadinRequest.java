@@ -24,10 +24,9 @@ package com.github.mcollovati.vertx.vaadin;
 
 import javax.servlet.http.Cookie;
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringReader;
+import java.io.InputStreamReader;
 import java.security.Principal;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
@@ -43,9 +42,13 @@ import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
 import com.github.mcollovati.vertx.Sync;
+import com.github.mcollovati.vertx.http.StreamingBodyHandler;
+import com.github.mcollovati.vertx.support.BufferInputStreamAdapter;
 import com.github.mcollovati.vertx.web.ExtendedSession;
+import com.github.mcollovati.vertx.web.LazySessionHandler;
 import com.vaadin.flow.server.VaadinRequest;
 import com.vaadin.flow.server.WrappedSession;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.net.SocketAddress;
@@ -55,6 +58,7 @@ import io.vertx.ext.web.RoutingContext;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
@@ -99,12 +103,25 @@ public class VertxVaadinRequest implements VaadinRequest {
 
     @Override
     public int getContentLength() {
-        return routingContext.getBody().length();
+        String contentLength = request.getHeader(HttpHeaders.CONTENT_LENGTH);
+        if (contentLength != null) {
+            try {
+                return Integer.parseInt(contentLength.trim());
+            } catch (NumberFormatException ex) {
+                // Invalid or too large for an int, treat as unknown
+            }
+        }
+        return -1;
     }
 
     @Override
     public InputStream getInputStream() throws IOException {
-        return new ByteArrayInputStream(routingContext.getBody().getBytes());
+        return StreamingBodyHandler.bodyStream(routingContext)
+            .orElseGet(() -> new BufferInputStreamAdapter(body()));
+    }
+
+    private Buffer body() {
+        return Optional.ofNullable(routingContext.getBody()).orElseGet(Buffer::buffer);
     }
 
     @Override
@@ -139,7 +156,7 @@ public class VertxVaadinRequest implements VaadinRequest {
 
     @Override
     public WrappedSession getWrappedSession(boolean allowSessionCreation) {
-        return Optional.ofNullable(routingContext.session())
+        return Optional.ofNullable(LazySessionHandler.session(routingContext, allowSessionCreation))
             .map(ExtendedSession::adapt)
             .map(VertxWrappedSession::new).orElse(null);
     }
@@ -245,7 +262,8 @@ public class VertxVaadinRequest implements VaadinRequest {
 
     @Override
     public BufferedReader getReader() throws IOException {
-        return new BufferedReader(new StringReader(routingContext.getBodyAsString()));
+        String charset = Optional.ofNullable(getCharacterEncoding()).orElse(UTF_8.name());
+        return new BufferedReader(new InputStreamReader(getInputStream(), charset));
     }
 
     @Override
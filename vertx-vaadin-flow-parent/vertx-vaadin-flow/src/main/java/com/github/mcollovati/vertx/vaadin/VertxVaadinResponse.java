@@ -25,29 +25,36 @@ package com.github.mcollovati.vertx.vaadin;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.io.Writer;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import com.github.mcollovati.vertx.http.HttpServerResponseOutputStream;
 import com.vaadin.flow.server.VaadinResponse;
-import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.http.HttpServerResponse;
 import io.vertx.ext.web.RoutingContext;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 /**
  * Created by marco on 16/07/16.
  */
 public class VertxVaadinResponse implements VaadinResponse {
 
+    private static final Pattern CHARSET_PATTERN = Pattern.compile("^.*(?<=charset=)([^;]+)(?:;.*$|$)", Pattern.CASE_INSENSITIVE);
+
     private final RoutingContext routingContext;
     private final HttpServerResponse response;
     private final VertxVaadinService service;
-    ;
-    private Buffer outBuffer = Buffer.buffer();
+    private HttpServerResponseOutputStream outputStream;
+    private PrintWriter writer;
     private boolean useOOS = false;
     private boolean useWriter = false;
 
@@ -89,17 +96,7 @@ public class VertxVaadinResponse implements VaadinResponse {
             throw new IllegalStateException("getWriter() has already been called for this response");
         }
         useOOS = true;
-        return new OutputStream() {
-            @Override
-            public void write(int b) throws IOException {
-                outBuffer.appendByte((byte) b);
-            }
-
-            @Override
-            public void close() throws IOException {
-                response.end(outBuffer);
-            }
-        };
+        return outputStream();
     }
 
     @Override
@@ -108,23 +105,29 @@ public class VertxVaadinResponse implements VaadinResponse {
             throw new IllegalStateException("getOutputStream() has already been called for this response");
         }
         useWriter = true;
-        return new PrintWriter(new Writer() {
-            @Override
-            public void write(char[] cbuf, int off, int len) throws IOException {
-                outBuffer.appendString(new String(cbuf, off, len));
-            }
+        if (writer == null) {
+            String charset = Optional.ofNullable(getCharacterEncoding()).orElse(UTF_8.name());
+            writer = new PrintWriter(new OutputStreamWriter(outputStream(), charset));
+        }
+        return writer;
+    }
 
-            @Override
-            public void flush() throws IOException {
-                response.write(outBuffer);
-                outBuffer = Buffer.buffer();
-            }
+    /**
+     * Gets the character encoding declared by the Content-Type header of the response.
+     *
+     * @return the charset name, or {@code null} if no charset has been specified
+     */
+    public String getCharacterEncoding() {
+        return Optional.ofNullable(response.headers().get(HttpHeaders.CONTENT_TYPE))
+            .map(CHARSET_PATTERN::matcher).filter(Matcher::matches)
+            .map(m -> m.group(1)).orElse(null);
+    }
 
-            @Override
-            public void close() throws IOException {
-                response.end(outBuffer);
-            }
-        });
+    private HttpServerResponseOutputStream outputStream() {
+        if (outputStream == null) {
+            outputStream = new HttpServerResponseOutputStream(response, service.getVaadinOptions().responseBufferSize());
+        }
+        return outputStream;
     }
 
     @Override
@@ -155,11 +158,18 @@ public class VertxVaadinResponse implements VaadinResponse {
     /**
      * Ends the response.
      *
-     * Does nothing if response is already endend or if it is chunked.
+     * Pending content written through {@link #getOutputStream()} or {@link #getWriter()} is sent
+     * before ending the response.
+     * Otherwise does nothing if response is already endend or if it is chunked.
      */
     void end() {
-        if (!response.ended() && !response.isChunked()) {
-            response.end(outBuffer);
+        if (writer != null) {
+            // Sends characters still buffered by the encoder, then closes the output stream
+            writer.close();
+        } else if (outputStream != null) {
+            outputStream.close();
+        } else if (!response.ended() && !response.isChunked()) {
+            response.end();
         }
     }
 
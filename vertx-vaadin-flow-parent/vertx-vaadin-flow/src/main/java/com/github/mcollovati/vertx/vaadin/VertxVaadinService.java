@@ -39,6 +39,7 @@ import com.github.mcollovati.vertx.support.StartupContext;
 import com.github.mcollovati.vertx.vaadin.communication.VertxFaviconHandler;
 import com.github.mcollovati.vertx.vaadin.communication.VertxStreamRequestHandler;
 import com.github.mcollovati.vertx.vaadin.communication.VertxWebComponentBootstrapHandler;
+import com.github.mcollovati.vertx.vaadin.sockjs.communication.PushBackpressureStats;
 import com.vaadin.flow.function.DeploymentConfiguration;
 import com.vaadin.flow.server.BootstrapHandler;
 import com.vaadin.flow.server.PwaRegistry;
@@ -49,6 +50,7 @@ import com.vaadin.flow.server.ServletHelper;
 import com.vaadin.flow.server.UnsupportedBrowserHandler;
 import com.vaadin.flow.server.VaadinContext;
 import com.vaadin.flow.server.VaadinRequest;
+import com.vaadin.flow.server.VaadinResponse;
 import com.vaadin.flow.server.VaadinService;
 import com.vaadin.flow.server.VaadinServlet;
 import com.vaadin.flow.server.VaadinServletContext;
@@ -88,6 +90,8 @@ public class VertxVaadinService extends VaadinServletService {
     private final transient StartupContext startupContext;
     private final transient DeploymentConfiguration deploymentConfiguration;
     private final transient WebJars webJars;
+    private final transient PushBackpressureStats pushBackpressureStats = new PushBackpressureStats();
+    private final transient VaadinSessionIndex sessionIndex = new VaadinSessionIndex();
 
     protected VertxVaadinService(final StartupContext startupContext, final DeploymentConfiguration deploymentConfiguration) {
         this.startupContext = Objects.requireNonNull(startupContext);
@@ -132,6 +136,28 @@ public class VertxVaadinService extends VaadinServletService {
         return startupContext.vertx();
     }
 
+    public VaadinOptions getVaadinOptions() {
+        return startupContext.vaadinOptions();
+    }
+
+    /**
+     * Gets the counters of the backpressure policy actions taken by the push connections of this service.
+     *
+     * @return the push backpressure counters
+     */
+    public PushBackpressureStats getPushBackpressureStats() {
+        return pushBackpressureStats;
+    }
+
+    /**
+     * Gets the index of the Vaadin sessions of this service by session id, re-keyed at the end of each request.
+     *
+     * @return the session index
+     */
+    VaadinSessionIndex getSessionIndex() {
+        return sessionIndex;
+    }
+
     public VaadinServletContext getVaadinServletContext() {
         return startupContext.vaadinServletContext();
     }
@@ -246,6 +272,20 @@ public class VertxVaadinService extends VaadinServletService {
         return startupContext.vaadinOptions().serviceName().orElseGet(() -> getClass().getName() + ".service");
     }
 
+    @Override
+    public void requestEnd(VaadinRequest request, VaadinResponse response, VaadinSession session) {
+        if (session != null && session.getSession() instanceof VertxWrappedSession) {
+            // VaadinSession is changed in place while handling the request, it must be replicated again
+            ((VertxWrappedSession) session.getSession()).getVertxSession()
+                .markDirty(VaadinSession.class.getName() + "." + getServiceName());
+        }
+        if (session != null) {
+            // The session id may have been changed by the request, for example on login
+            sessionIndex.update(session);
+        }
+        super.requestEnd(request, response, session);
+    }
+
     @Override
     public URL getStaticResource(String url) {
         return tryResolveFile(url);
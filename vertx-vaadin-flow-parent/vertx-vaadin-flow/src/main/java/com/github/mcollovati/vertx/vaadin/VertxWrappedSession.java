@@ -57,12 +57,17 @@ public class VertxWrappedSession implements WrappedSession {
 
     @Override
     public int getMaxInactiveInterval() {
-        return Long.valueOf(delegate.timeout()).intValue() / 1000;
+        long timeout = delegate.timeout();
+        if (timeout == Long.MAX_VALUE) {
+            return -1;
+        }
+        return (int) Math.min(timeout / 1000, Integer.MAX_VALUE);
     }
 
     @Override
     public void setMaxInactiveInterval(int interval) {
-        throw new UnsupportedOperationException("Setting max interval is not supported on Vert.x session");
+        // Zero or negative intervals mean that the session never expires
+        delegate.timeout(interval <= 0 ? Long.MAX_VALUE : interval * 1000L);
     }
 
     @Override
@@ -53,6 +53,11 @@ import com.vaadin.flow.shared.ApplicationConstants;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.file.FileSystem;
 import io.vertx.ext.web.FileUpload;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUploadBase;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.RequestContext;
 import org.apache.commons.fileupload.servlet.ServletFileUpload;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -108,6 +113,8 @@ public class VertxStreamReceiverHandler extends StreamReceiverHandler {
             Set<FileUpload> fileUploads = ((VertxVaadinRequest) request).getRoutingContext().fileUploads();
             if (!fileUploads.isEmpty()) {
                 doHandleMultipartFileUpload(session, request, response, fileUploads, streamReceiver, source);
+            } else if (FileUploadBase.isMultipartContent(new UploadRequestContext(request))) {
+                doHandleMultipartStreamUpload(session, request, response, streamReceiver, source);
             } else {
                 // if boundary string does not exist, the posted file is from
                 // XHR2.post(File)
@@ -152,6 +159,47 @@ public class VertxStreamReceiverHandler extends StreamReceiverHandler {
         sendUploadResponse(response);
     }
 
+    /**
+     * Method used to stream content from a multipart request to given
+     * StreamVariable, reading parts directly from the request body instead
+     * of from files already uploaded by a {@link io.vertx.ext.web.handler.BodyHandler}.
+     * <p>
+     * This method takes care of locking the session as needed and does not
+     * assume the caller has locked the session. This allows the session to be
+     * locked only when needed and not when handling the upload data.
+     *
+     * @param session        The session containing the stream variable
+     * @param request        The upload request
+     * @param response       The upload response
+     * @param streamReceiver the receiver containing the destination stream variable
+     * @param owner          The owner of the stream
+     * @throws IOException If there is a problem reading the request or writing the
+     *                     response
+     */
+    protected void doHandleMultipartStreamUpload(VaadinSession session,
+                                                 VaadinRequest request, VaadinResponse response,
+                                                 StreamReceiver streamReceiver, StateNode owner) throws IOException {
+
+        long contentLength = getContentLength(request);
+        try {
+            FileItemIterator iter = new ServletFileUpload().getItemIterator(new UploadRequestContext(request));
+            while (iter.hasNext()) {
+                FileItemStream item = iter.next();
+                if (!item.isFormField()) {
+                    try (InputStream stream = item.openStream()) {
+                        handleFileUploadValidationAndData(session, stream, streamReceiver,
+                            item.getName(), item.getContentType(), contentLength, owner);
+                    } catch (UploadException e) {
+                        session.getErrorHandler().error(new ErrorEvent(e));
+                    }
+                }
+            }
+        } catch (FileUploadException e) {
+            getLogger().warn("File upload failed.", e);
+        }
+        sendUploadResponse(response);
+    }
+
     private void handleStream(VaadinSession session, FileSystem fileSystem,
                               StreamReceiver streamReceiver, StateNode owner, long contentLength,
                               FileUpload item) {
@@ -271,6 +319,36 @@ public class VertxStreamReceiverHandler extends StreamReceiverHandler {
         }
     }
 
+    private static final class UploadRequestContext implements RequestContext {
+
+        private final VaadinRequest request;
+
+        private UploadRequestContext(VaadinRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        public String getCharacterEncoding() {
+            return request.getCharacterEncoding();
+        }
+
+        @Override
+        public String getContentType() {
+            // Full header value, the boundary parameter is required to parse parts
+            return request.getHeader("Content-Type");
+        }
+
+        @Override
+        public int getContentLength() {
+            return request.getContentLength();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return request.getInputStream();
+        }
+    }
+
     private void cleanStreamVariable(VaadinSession session,
                                      StreamReceiver streamReceiver) {
         session.lock();
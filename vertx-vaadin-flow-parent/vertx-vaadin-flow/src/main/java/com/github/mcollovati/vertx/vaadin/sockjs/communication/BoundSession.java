@@ -0,0 +1,108 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.vaadin.sockjs.communication;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.sstore.SessionStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Session bound to a push socket, reused for later frames instead of being loaded and stored
+ * through the session handler for each of them.
+ *
+ * The bound session is stored again at least once per revalidation interval, and twice per timeout,
+ * so that changes made by push frames are written back and the store does not expire it.
+ * If the store rejects it, because the session has been changed elsewhere, the binding is dropped
+ * and the next frame loads the session again.
+ *
+ * Socket handlers run on the context of the socket, so no synchronization is needed.
+ */
+final class BoundSession {
+
+    private static final Logger logger = LoggerFactory.getLogger(BoundSession.class);
+
+    private final long revalidationInterval;
+    private Session session;
+    private long boundAt;
+    private boolean storing;
+
+    BoundSession(long revalidationInterval) {
+        this.revalidationInterval = revalidationInterval;
+    }
+
+    void bind(Session session) {
+        this.session = session;
+        this.boundAt = System.currentTimeMillis();
+        this.storing = false;
+    }
+
+    /**
+     * Gets the bound session, or null if it must be loaded through the session handler.
+     */
+    Session reusable() {
+        if (session != null && (session.isDestroyed()
+            || System.currentTimeMillis() - session.lastAccessed() > session.timeout())) {
+            session = null;
+        }
+        return session;
+    }
+
+    /**
+     * Checks whether the bound session should be stored after the current frame.
+     */
+    boolean shouldStore() {
+        if (session == null || storing) {
+            return false;
+        }
+        long interval = Math.min(session.timeout() / 2, revalidationInterval);
+        return System.currentTimeMillis() - boundAt >= interval;
+    }
+
+    /**
+     * Stores the bound session, keeping it bound if the store accepts it.
+     */
+    void store(SessionStore sessionStore, Handler<AsyncResult<Void>> resultHandler) {
+        Session stored = session;
+        if (stored == null || stored.isDestroyed()) {
+            resultHandler.handle(Future.succeededFuture());
+            return;
+        }
+        storing = true;
+        sessionStore.put(stored, res -> {
+            if (session == stored) {
+                storing = false;
+                if (res.succeeded()) {
+                    boundAt = System.currentTimeMillis();
+                } else {
+                    logger.debug("Cannot store session {} bound to push socket, it will be loaded again", stored.id(), res.cause());
+                    session = null;
+                }
+            }
+            resultHandler.handle(res);
+        });
+    }
+}
@@ -28,12 +28,10 @@ import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
-import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 
 import com.github.mcollovati.vertx.http.HttpServerResponseWrapper;
@@ -54,18 +52,20 @@ import com.vaadin.flow.server.communication.ServerRpcHandler;
 import com.vaadin.flow.shared.ApplicationConstants;
 import com.vaadin.flow.shared.communication.PushMode;
 import elemental.json.JsonException;
+import io.vertx.core.Context;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.Session;
-import io.vertx.ext.web.handler.SessionHandler;
 import io.vertx.ext.web.handler.sockjs.SockJSHandler;
 import io.vertx.ext.web.handler.sockjs.SockJSSocket;
 import io.vertx.ext.web.impl.RoutingContextDecorator;
+import io.vertx.ext.web.sstore.SessionStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -79,6 +79,11 @@ public class SockJSPushHandler implements Handler<RoutingContext> {
 
     private static final Logger logger = LoggerFactory.getLogger(SockJSPushHandler.class);
 
+    /**
+     * Maximum time a session bound to a socket is reused before it is stored again.
+     */
+    private static final long SESSION_REVALIDATION_INTERVAL = 10_000;
+
     /**
      * Callback used when we receive a UIDL request through Atmosphere. If the
      * push channel is bidirectional (websockets), the request was sent via the
@@ -129,8 +134,9 @@ public class SockJSPushHandler implements Handler<RoutingContext> {
     };
     private final VertxVaadinService service;
     private final SockJSHandler sockJSHandler;
-    private final SessionHandler sessionHandler;
-    private final LocalMap<String, SockJSSocket> connectedSocketsLocalMap;
+    private final Handler<RoutingContext> sessionHandler;
+    private final SessionStore sessionStore;
+    private final LocalMap<String, PushSocketImpl> connectedSocketsLocalMap;
 
     /**
      * Callback used when we receive a request to establish a push channel for a
@@ -160,9 +166,24 @@ public class SockJSPushHandler implements Handler<RoutingContext> {
         connection.connect(socket);
     };
 
-    public SockJSPushHandler(VertxVaadinService service, SessionHandler sessionHandler, SockJSHandler sockJSHandler) {
+    public SockJSPushHandler(VertxVaadinService service, Handler<RoutingContext> sessionHandler, SockJSHandler sockJSHandler) {
+        this(service, sessionHandler, null, sockJSHandler);
+    }
+
+    /**
+     * Creates a push handler that stores sessions bound to push sockets in the given store,
+     * instead of loading them again through the session handler once the revalidation interval elapses.
+     *
+     * @param service        the Vaadin service
+     * @param sessionHandler the session handler
+     * @param sessionStore   the store used by the session handler
+     * @param sockJSHandler  the SockJS handler
+     */
+    public SockJSPushHandler(VertxVaadinService service, Handler<RoutingContext> sessionHandler,
+                             SessionStore sessionStore, SockJSHandler sockJSHandler) {
         this.service = service;
         this.sessionHandler = sessionHandler;
+        this.sessionStore = sessionStore;
         this.sockJSHandler = sockJSHandler;
         this.connectedSocketsLocalMap = socketsMap(service.getVertx());
         this.sockJSHandler.socketHandler(this::onConnect);
@@ -173,32 +194,62 @@ public class SockJSPushHandler implements Handler<RoutingContext> {
         RoutingContext routingContext = CurrentInstance.get(RoutingContext.class);
 
         String uuid = sockJSSocket.writeHandlerID();
-        connectedSocketsLocalMap.put(uuid, sockJSSocket);
-        PushSocket socket = new PushSocketImpl(sockJSSocket);
+        PushSocketImpl socket = new PushSocketImpl(sockJSSocket, Vertx.currentContext());
+        connectedSocketsLocalMap.put(uuid, socket);
+        BoundSession boundSession = new BoundSession(SESSION_REVALIDATION_INTERVAL);
 
-        initSocket(sockJSSocket, routingContext, socket);
+        initSocket(sockJSSocket, routingContext, socket, boundSession);
 
         // Send an ACK
         socket.send("ACK-CONN|" + uuid);
 
-        sessionHandler.handle(new SockJSRoutingContext(routingContext, rc ->
+        withSession(routingContext, boundSession, rc ->
             callWithUi(new PushEvent(socket, routingContext, null), establishCallback)
-        ));
+        );
     }
 
-    private void initSocket(SockJSSocket sockJSSocket, RoutingContext routingContext, PushSocket socket) {
-        sockJSSocket.handler(data -> sessionHandler.handle(
-            new SockJSRoutingContext(routingContext, rc -> onMessage(new PushEvent(socket, rc, data)))
+    private void initSocket(SockJSSocket sockJSSocket, RoutingContext routingContext, PushSocketImpl socket,
+                            BoundSession boundSession) {
+        sockJSSocket.handler(data -> withSession(routingContext, boundSession,
+            rc -> onMessage(new PushEvent(socket, rc, data))
         ));
-        sockJSSocket.endHandler(unused -> sessionHandler.handle(
-            new SockJSRoutingContext(routingContext, rc -> onDisconnect(new PushEvent(socket, rc, null)))
-        ));
-        sockJSSocket.exceptionHandler(t -> sessionHandler.handle(
-            new SockJSRoutingContext(routingContext, rc -> onError(new PushEvent(socket, routingContext, null), t))
+        sockJSSocket.endHandler(unused -> {
+            socket.closed();
+            withSession(routingContext, boundSession, rc -> onDisconnect(new PushEvent(socket, rc, null)));
+        });
+        sockJSSocket.exceptionHandler(t -> withSession(routingContext, boundSession,
+            rc -> onError(new PushEvent(socket, routingContext, null), t)
         ));
 
     }
 
+    /**
+     * Runs the action with the session of the socket.
+     *
+     * The session resolved by the session handler is bound to the socket and reused for later frames,
+     * so that they do not need a session store lookup and write each.
+     * Once the revalidation interval elapses the bound session is stored after the frame, and loaded
+     * again through the session handler if the store rejects it because it has been changed elsewhere.
+     * The session handler also runs again when the bound session has been destroyed or expired.
+     */
+    private void withSession(RoutingContext routingContext, BoundSession boundSession, Handler<RoutingContext> action) {
+        Session session = boundSession.reusable();
+        if (session == null || (sessionStore == null && boundSession.shouldStore())) {
+            sessionHandler.handle(new SockJSRoutingContext(routingContext, rc -> {
+                action.handle(rc);
+                boundSession.bind(rc.session());
+            }));
+        } else {
+            session.setAccessed();
+            SockJSRoutingContext rc = new SockJSRoutingContext(routingContext, action);
+            rc.setSession(session);
+            if (boundSession.shouldStore()) {
+                rc.addBodyEndHandler(v -> boundSession.store(sessionStore, res -> {}));
+            }
+            rc.next();
+        }
+    }
+
     private void onDisconnect(PushEvent ev) {
         connectedSocketsLocalMap.remove(ev.socket.getUUID());
         connectionLost(ev);
@@ -389,7 +440,7 @@ public class SockJSPushHandler implements Handler<RoutingContext> {
                     logger.trace("Connection unexpectedly closed for resource {} with transport {}", id, "resource.transport()");
                 }
 
-                pushConnection.connectionLost();
+                pushConnection.connectionLost(event.socket());
             }
 
         } catch (final Exception e) {
@@ -404,7 +455,7 @@ public class SockJSPushHandler implements Handler<RoutingContext> {
         }
     }
 
-    private static LocalMap<String, SockJSSocket> socketsMap(Vertx vertx) {
+    private static LocalMap<String, PushSocketImpl> socketsMap(Vertx vertx) {
         return vertx.sharedData().getLocalMap(SockJSPushHandler.class.getName() + ".push-sockets");
     }
 
@@ -464,14 +515,32 @@ public class SockJSPushHandler implements Handler<RoutingContext> {
         void run(PushEvent event, UI ui) throws IOException;
     }
 
-    private static class PushSocketImpl implements PushSocket {
+    /**
+     * Push socket that holds a direct reference to the SockJS socket.
+     *
+     * Connection state is tracked from open and close events, and writes run directly when called
+     * from the socket event loop, otherwise they are dispatched to the socket context.
+     * The socket reference is not serialized: a deserialized copy, for example after the Vaadin
+     * session has been reloaded from a clustered store, looks up the live socket once, on first use.
+     */
+    private static class PushSocketImpl implements PushSocket, Shareable {
 
         private final String socketUUID;
         private final String remoteAddress;
+        private transient SockJSSocket socket;
+        private transient Context context;
+        private transient Thread eventLoop;
+        private transient volatile boolean connected;
+        private transient PushSocketImpl live;
 
-        PushSocketImpl(SockJSSocket socket) {
+        PushSocketImpl(SockJSSocket socket, Context context) {
             this.socketUUID = socket.writeHandlerID();
             this.remoteAddress = socket.remoteAddress().toString();
+            this.socket = socket;
+            this.context = context;
+            this.eventLoop = Thread.currentThread();
+            this.connected = true;
+            this.live = this;
         }
 
         @Override
@@ -486,45 +555,124 @@ public class SockJSPushHandler implements Handler<RoutingContext> {
 
         @Override
         public CompletionStage<?> send(String message) {
-            return runCommand(socket -> {
-                socket.write(Buffer.buffer(message));
-                return Boolean.TRUE;
-            });
+            return runCommand(socket -> socket.write(Buffer.buffer(message)));
         }
 
         @Override
         public CompletionStage<Boolean> close() {
             return runCommand(socket -> {
+                closed();
                 socket.close();
-                return Boolean.TRUE;
+            });
+        }
+
+        @Override
+        public CompletionStage<?> closeAfter(CompletionStage<?> pendingWrite, long timeout) {
+            PushSocketImpl target = live();
+            if (target == null) {
+                return close();
+            }
+            Vertx vertx = target.context.owner();
+            CompletableFuture<Void> written = new CompletableFuture<>();
+            long timerId = vertx.setTimer(timeout, tid -> {
+                if (written.complete(null)) {
+                    logger.info("Timeout waiting for messages to be sent to client before disconnect");
+                }
+            });
+            pendingWrite.whenComplete((unused, error) -> {
+                if (error != null) {
+                    logger.info("Error waiting for messages to be sent to client before disconnect", error);
+                }
+                if (written.complete(null)) {
+                    vertx.cancelTimer(timerId);
+                }
+            });
+            return written.thenCompose(unused -> close());
+        }
+
+        @Override
+        public void schedule(long delay, Runnable task) {
+            PushSocketImpl target = live();
+            if (target == null) {
+                task.run();
+            } else {
+                // Timers set from the socket context fire on it
+                target.context.runOnContext(v -> target.context.owner().setTimer(delay, tid -> task.run()));
+            }
+        }
+
+        @Override
+        public boolean isWriteQueueFull() {
+            PushSocketImpl target = live();
+            return target != null && target.socket.writeQueueFull();
+        }
+
+        @Override
+        public void drainHandler(Runnable handler) {
+            PushSocketImpl target = live();
+            if (target == null) {
+                handler.run();
+                return;
+            }
+            target.context.runOnContext(v -> {
+                if (!target.socket.writeQueueFull()) {
+                    // Already drained
+                    handler.run();
+                } else {
+                    target.socket.drainHandler(drained -> {
+                        target.socket.drainHandler(null);
+                        handler.run();
+                    });
+                }
             });
         }
 
         @Override
         public boolean isConnected() {
-            try {
-                return runCommand(Objects::nonNull).get(1000, TimeUnit.MILLISECONDS);
-            } catch (Exception e) {
-                return false;
+            PushSocketImpl target = live();
+            return target != null && target.connected;
+        }
+
+        void closed() {
+            PushSocketImpl target = live();
+            if (target != null) {
+                target.connected = false;
             }
         }
 
-        // Should run sync to avoid hanging on vaadin session
-        private <T> CompletableFuture<T> runCommand(Function<SockJSSocket, T> action) {
-            CompletableFuture<T> future = new CompletableFuture<>();
-            Vertx vertx = Vertx.currentContext().owner();
-            SockJSSocket socket = SockJSPushHandler.socketsMap(vertx).get(socketUUID);
-            if (socket != null) {
-                try {
-                    future.complete(action.apply(socket));
-                } catch (Exception ex) {
-                    future.completeExceptionally(ex);
+        private PushSocketImpl live() {
+            if (live == null) {
+                Context current = Vertx.currentContext();
+                if (current != null) {
+                    live = SockJSPushHandler.socketsMap(current.owner()).get(socketUUID);
                 }
-            } else {
+            }
+            return live;
+        }
+
+        private CompletableFuture<Boolean> runCommand(Consumer<SockJSSocket> action) {
+            CompletableFuture<Boolean> future = new CompletableFuture<>();
+            PushSocketImpl target = live();
+            if (target == null) {
                 future.completeExceptionally(new RuntimeException("Socket not registered: " + socketUUID));
+            } else if (Thread.currentThread() == target.eventLoop) {
+                // Run sync, callers may wait for the result while holding the Vaadin session lock
+                runCommand(target.socket, action, future);
+            } else {
+                target.context.runOnContext(v -> runCommand(target.socket, action, future));
             }
             return future;
         }
+
+        private static void runCommand(SockJSSocket socket, Consumer<SockJSSocket> action,
+                                       CompletableFuture<Boolean> future) {
+            try {
+                action.accept(socket);
+                future.complete(Boolean.TRUE);
+            } catch (Exception ex) {
+                future.completeExceptionally(ex);
+            }
+        }
     }
 
     private static class PushEvent {
@@ -553,6 +701,7 @@ public class SockJSPushHandler implements Handler<RoutingContext> {
 class SockJSRoutingContext extends RoutingContextDecorator {
 
     private final List<Handler<Void>> headersEndHandlers = new ArrayList<>();
+    private final List<Handler<Void>> bodyEndHandlers = new ArrayList<>();
     private final Handler<RoutingContext> action;
     private Session session;
 
@@ -588,6 +737,7 @@ class SockJSRoutingContext extends RoutingContextDecorator {
         vertx().runOnContext(future -> {
             action.handle(this);
             headersEndHandlers.forEach(h -> h.handle(null));
+            bodyEndHandlers.forEach(h -> h.handle(null));
         });
     }
 
@@ -597,4 +747,10 @@ class SockJSRoutingContext extends RoutingContextDecorator {
         return headersEndHandlers.size();
     }
 
+    @Override
+    public int addBodyEndHandler(Handler<Void> handler) {
+        bodyEndHandlers.add(handler);
+        return bodyEndHandlers.size();
+    }
+
 }
\ No newline at end of file
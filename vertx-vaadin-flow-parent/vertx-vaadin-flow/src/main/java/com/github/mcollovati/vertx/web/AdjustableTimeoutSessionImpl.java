@@ -0,0 +1,136 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.web;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.vertx.core.Handler;
+import io.vertx.ext.auth.PRNG;
+import io.vertx.ext.web.sstore.impl.SharedDataSessionImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shared data session whose timeout can be changed after creation, and that keeps
+ * the handlers to call when it expires.
+ *
+ * The timeout is part of the serialized session, so it is preserved by clustered and local stores.
+ * Expired handlers are not serialized: they are called only by the store of the node where they were added,
+ * as long as that store holds this same session instance.
+ */
+public class AdjustableTimeoutSessionImpl extends SharedDataSessionImpl {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdjustableTimeoutSessionImpl.class);
+
+    // Created on first use, most sessions never have expired handlers
+    private Map<Integer, Handler<ExtendedSession>> expiredHandlers;
+    private int nextHandlerId;
+
+    public AdjustableTimeoutSessionImpl() {
+    }
+
+    public AdjustableTimeoutSessionImpl(PRNG random) {
+        super(random);
+    }
+
+    public AdjustableTimeoutSessionImpl(PRNG random, long timeout, int length) {
+        super(random, timeout, length);
+    }
+
+    /**
+     * Changes the time after which this session expires if not accessed.
+     *
+     * @param timeout the new timeout, in ms
+     */
+    public void timeout(long timeout) {
+        setTimeout(timeout);
+    }
+
+    synchronized int addExpiredHandler(Handler<ExtendedSession> handler) {
+        if (expiredHandlers == null) {
+            expiredHandlers = new LinkedHashMap<>();
+        }
+        int handlerId = ++nextHandlerId;
+        expiredHandlers.put(handlerId, handler);
+        return handlerId;
+    }
+
+    synchronized boolean removeExpiredHandler(int handlerId) {
+        return expiredHandlers != null && expiredHandlers.remove(handlerId) != null;
+    }
+
+    synchronized boolean hasExpiredHandlers() {
+        return expiredHandlers != null && !expiredHandlers.isEmpty();
+    }
+
+    synchronized void copyExpiredHandlersTo(AdjustableTimeoutSessionImpl other) {
+        if (expiredHandlers != null) {
+            synchronized (other) {
+                if (other.expiredHandlers == null) {
+                    other.expiredHandlers = new LinkedHashMap<>();
+                }
+                other.expiredHandlers.putAll(expiredHandlers);
+                other.nextHandlerId = Math.max(other.nextHandlerId, nextHandlerId);
+            }
+        }
+    }
+
+    /**
+     * Creates a session with the same id, timeout, last access time, version, attributes and expired handlers.
+     *
+     * Only the attribute map is copied, attribute values are shared with this session.
+     *
+     * @return the copy
+     */
+    synchronized AdjustableTimeoutSessionImpl copy() {
+        AdjustableTimeoutSessionImpl copy = new AdjustableTimeoutSessionImpl();
+        copy.setId(id());
+        copy.setTimeout(timeout());
+        copy.setLastAccessed(lastAccessed());
+        copy.setVersion(version());
+        data().forEach(copy::put);
+        copyExpiredHandlersTo(copy);
+        return copy;
+    }
+
+    void fireExpiredHandlers(ExtendedSession session) {
+        List<Handler<ExtendedSession>> handlers;
+        synchronized (this) {
+            if (expiredHandlers == null) {
+                return;
+            }
+            handlers = new ArrayList<>(expiredHandlers.values());
+            expiredHandlers = null;
+        }
+        for (Handler<ExtendedSession> handler : handlers) {
+            try {
+                handler.handle(session);
+            } catch (RuntimeException ex) {
+                logger.error("Error in expired handler of session {}", id(), ex);
+            }
+        }
+    }
+}
@@ -39,9 +39,33 @@ public interface ExtendedSession extends Session {
      */
     long createdAt();
 
+    /**
+     * Changes the time after which this session expires if not accessed.
+     *
+     * The new timeout is applied by the session store the next time the session is stored.
+     *
+     * @param timeout the new timeout, in ms
+     * @throws UnsupportedOperationException if the underlying session does not support changing the timeout
+     */
+    void timeout(long timeout);
+
+    /**
+     * Marks an attribute as changed, so that it is replicated the next time the session is stored.
+     *
+     * Attributes are tracked when they are put or removed; this must be called for attributes
+     * that are changed in place. Sessions that do not track changes ignore it.
+     *
+     * @param key the attribute name
+     */
+    default void markDirty(String key) {
+    }
+
     /**
      * Add a handler that will be called after session expires.
      *
+     * Handlers are kept in memory only: they are called by the session store of the node
+     * where they have been added, and are lost if the session is passivated or reloaded from the cluster.
+     *
      * @param handler the handler
      * @return the id of the handler. This can be used if you later want to remove the handler.
      */
@@ -22,15 +22,23 @@
  */
 package com.github.mcollovati.vertx.web;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.github.mcollovati.vertx.web.serialization.SerializableHolder;
+import com.github.mcollovati.vertx.web.serialization.SerializationSupport;
 import io.vertx.core.Handler;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.shareddata.Shareable;
 import io.vertx.core.shareddata.impl.ClusterSerializable;
 import io.vertx.ext.web.Session;
+import io.vertx.ext.web.sstore.AbstractSession;
 import io.vertx.ext.web.sstore.impl.SharedDataSessionImpl;
 
 /**
@@ -41,24 +49,76 @@ public class ExtendedSessionImpl extends SharedDataSessionImpl implements Extend
 
     protected Session delegate;
     private long createdAt;
+    // Attributes changed since the last delta was written
+    private final Set<String> dirtyAttributes = ConcurrentHashMap.newKeySet();
+    private volatile boolean timeoutChanged;
+    private volatile SerializationSupport serialization = SerializationSupport.DEFAULT;
 
     public ExtendedSessionImpl() {
-        this.delegate = new SharedDataSessionImpl();
+        this.delegate = new AdjustableTimeoutSessionImpl();
     }
 
     public ExtendedSessionImpl(Session delegate) {
+        this(delegate, SerializationSupport.DEFAULT);
+    }
+
+    public ExtendedSessionImpl(Session delegate, SerializationSupport serialization) {
         this.delegate = delegate;
+        this.serialization = Objects.requireNonNull(serialization);
         this.createdAt = System.currentTimeMillis();
     }
 
+    /**
+     * Sets how attributes that are not natively cluster serializable are encoded.
+     *
+     * Meant to be called by session stores on sessions they did not create, such as sessions
+     * read from a clustered map.
+     *
+     * @param serialization the serialization support of the store
+     */
+    public void serialization(SerializationSupport serialization) {
+        this.serialization = Objects.requireNonNull(serialization);
+    }
+
+    /**
+     * Gets how attributes that are not natively cluster serializable are encoded.
+     *
+     * @return the serialization support
+     */
+    public SerializationSupport serialization() {
+        return serialization;
+    }
+
     @Override
     public int addExpiredHandler(Handler<ExtendedSession> handler) {
-        return 0;
+        return adjustableDelegate("add expired handlers to").addExpiredHandler(Objects.requireNonNull(handler));
     }
 
     @Override
     public boolean removeHeadersEndHandler(int handlerID) {
-        return false;
+        return delegate instanceof AdjustableTimeoutSessionImpl
+            && ((AdjustableTimeoutSessionImpl) delegate).removeExpiredHandler(handlerID);
+    }
+
+    /**
+     * Checks if handlers have been added with {@link #addExpiredHandler(Handler)}.
+     *
+     * @return true if there are handlers to call when the session expires
+     */
+    public boolean hasExpiredHandlers() {
+        return delegate instanceof AdjustableTimeoutSessionImpl
+            && ((AdjustableTimeoutSessionImpl) delegate).hasExpiredHandlers();
+    }
+
+    /**
+     * Calls, and removes, the handlers added with {@link #addExpiredHandler(Handler)}.
+     *
+     * Meant to be called by session stores once the session has expired.
+     */
+    public void fireExpiredHandlers() {
+        if (delegate instanceof AdjustableTimeoutSessionImpl) {
+            ((AdjustableTimeoutSessionImpl) delegate).fireExpiredHandlers(this);
+        }
     }
 
     @Override
@@ -68,6 +128,7 @@ public class ExtendedSessionImpl extends SharedDataSessionImpl implements Extend
 
     @Override
     public Session put(String key, Object obj) {
+        dirtyAttributes.add(key);
         return delegate.put(key, wrapIfNeeded(obj));
     }
 
@@ -78,6 +139,7 @@ public class ExtendedSessionImpl extends SharedDataSessionImpl implements Extend
 
     @Override
     public <T> T remove(String key) {
+        dirtyAttributes.add(key);
         return unwrapIfNeeded(delegate.remove(key));
     }
 
@@ -108,6 +170,12 @@ public class ExtendedSessionImpl extends SharedDataSessionImpl implements Extend
         return delegate.timeout();
     }
 
+    @Override
+    public void timeout(long timeout) {
+        adjustableDelegate("change timeout of").timeout(timeout);
+        timeoutChanged = true;
+    }
+
     @Override
     public void setAccessed() {
         delegate.setAccessed();
@@ -134,6 +202,142 @@ public class ExtendedSessionImpl extends SharedDataSessionImpl implements Extend
         return delegate.oldId();
     }
 
+    @Override
+    public int version() {
+        if (delegate instanceof AbstractSession) {
+            return ((AbstractSession) delegate).version();
+        }
+        return super.version();
+    }
+
+    @Override
+    public void incrementVersion() {
+        if (delegate instanceof AbstractSession) {
+            ((AbstractSession) delegate).incrementVersion();
+        } else {
+            super.incrementVersion();
+        }
+    }
+
+    @Override
+    public void markDirty(String key) {
+        Object obj = delegate.get(key);
+        if (obj instanceof SerializableHolder) {
+            ((SerializableHolder) obj).dropEncoded();
+        }
+        dirtyAttributes.add(key);
+    }
+
+    /**
+     * Checks if the timeout or attributes have been changed since the last delta was written.
+     *
+     * @return true if there are changes to replicate
+     */
+    public boolean isDirty() {
+        return timeoutChanged || !dirtyAttributes.isEmpty();
+    }
+
+    /**
+     * Writes the timeout and the attributes changed since the last delta, and marks them as replicated.
+     *
+     * @param buffer the buffer to write to
+     */
+    public void writeDeltaToBuffer(Buffer buffer) {
+        timeoutChanged = false;
+        List<String> keys = new ArrayList<>(dirtyAttributes);
+        dirtyAttributes.removeAll(keys);
+        buffer.appendLong(delegate.timeout());
+        buffer.appendInt(keys.size());
+        for (String key : keys) {
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            buffer.appendInt(keyBytes.length).appendBytes(keyBytes);
+            Object obj = delegate.data().get(key);
+            if (obj == null) {
+                buffer.appendByte((byte) 0);
+            } else if (obj instanceof SerializableHolder) {
+                // Keeps the encoded attribute, so that a following full write does not serialize it again
+                buffer.appendByte((byte) 1);
+                ((SerializableHolder) obj).writeToBuffer(buffer);
+            } else {
+                buffer.appendByte((byte) 1);
+                serialization.writeToBuffer(buffer, obj);
+            }
+        }
+    }
+
+    /**
+     * Applies a delta written by {@link #writeDeltaToBuffer(Buffer)} on another copy of this session.
+     *
+     * Applied attributes are not marked as changed, since they are already replicated,
+     * and are kept encoded until they are read.
+     *
+     * @param pos    the position of the delta in the buffer
+     * @param buffer the buffer to read from
+     * @return the position after the delta
+     */
+    public int readDeltaFromBuffer(int pos, Buffer buffer) {
+        long timeout = buffer.getLong(pos);
+        pos += 8;
+        if (timeout != delegate.timeout() && delegate instanceof AdjustableTimeoutSessionImpl) {
+            ((AdjustableTimeoutSessionImpl) delegate).timeout(timeout);
+        }
+        int count = buffer.getInt(pos);
+        pos += 4;
+        for (int i = 0; i < count; i++) {
+            int keyLength = buffer.getInt(pos);
+            pos += 4;
+            String key = buffer.getString(pos, pos + keyLength, StandardCharsets.UTF_8.name());
+            pos += keyLength;
+            boolean present = buffer.getByte(pos++) == 1;
+            if (present) {
+                SerializableHolder holder = new SerializableHolder();
+                pos = holder.readFromBuffer(pos, buffer);
+                delegate.put(key, holder);
+            } else {
+                delegate.remove(key);
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Drops the encoded form kept by attributes after they have been written,
+     * see {@link SerializableHolder#dropEncoded()}.
+     *
+     * Meant to be called by session stores once the session has been written,
+     * so that encoded attributes are not kept in memory along with decoded ones.
+     */
+    public void dropEncodedAttributes() {
+        for (Object obj : delegate.data().values()) {
+            if (obj instanceof SerializableHolder) {
+                ((SerializableHolder) obj).dropEncoded();
+            }
+        }
+    }
+
+    /**
+     * Creates a copy of this session, with the same attributes, version and expired handlers,
+     * that can be changed without affecting requests still using this instance.
+     *
+     * Attribute holders are shared with this instance, so that no attribute is encoded or decoded;
+     * only adding, replacing or removing attributes on the copy does not affect this instance.
+     *
+     * @return the copy
+     */
+    public ExtendedSessionImpl copy() {
+        if (delegate instanceof AdjustableTimeoutSessionImpl) {
+            ExtendedSessionImpl copy = new ExtendedSessionImpl(((AdjustableTimeoutSessionImpl) delegate).copy(), serialization);
+            copy.createdAt = createdAt;
+            return copy;
+        }
+        Buffer buffer = Buffer.buffer();
+        writeToBuffer(buffer);
+        ExtendedSessionImpl copy = new ExtendedSessionImpl();
+        copy.readFromBuffer(0, buffer);
+        copy.serialization = serialization;
+        return copy;
+    }
+
     @Override
     public void writeToBuffer(Buffer buffer) {
         buffer.appendLong(createdAt);
@@ -146,10 +350,17 @@ public class ExtendedSessionImpl extends SharedDataSessionImpl implements Extend
         return ((ClusterSerializable) delegate).readFromBuffer(pos + 8, buffer);
     }
 
+    private AdjustableTimeoutSessionImpl adjustableDelegate(String operation) {
+        if (!(delegate instanceof AdjustableTimeoutSessionImpl)) {
+            throw new UnsupportedOperationException("Cannot " + operation + " " + delegate.getClass().getName());
+        }
+        return (AdjustableTimeoutSessionImpl) delegate;
+    }
+
     @SuppressWarnings("unchecked")
     private <T> T unwrapIfNeeded(T obj) {
         if (obj instanceof SerializableHolder) {
-            return (T) ((SerializableHolder) obj).get();
+            return (T) ((SerializableHolder) obj).get(serialization);
         }
         return obj;
     }
@@ -159,7 +370,7 @@ public class ExtendedSessionImpl extends SharedDataSessionImpl implements Extend
             || obj instanceof Boolean || obj instanceof ClusterSerializable) {
             return obj;
         }
-        return new SerializableHolder(obj);
+        return new SerializableHolder(obj, serialization);
     }
 
 }
\ No newline at end of file
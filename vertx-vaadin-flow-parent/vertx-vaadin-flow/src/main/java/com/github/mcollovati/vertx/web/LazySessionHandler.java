@@ -0,0 +1,235 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.web;
+
+import java.util.Objects;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.Cookie;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.handler.SessionHandler;
+import io.vertx.ext.web.sstore.SessionStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Session handler that defers the creation of new sessions until they are actually needed.
+ *
+ * Requests carrying the cookie of a session that is in the store are delegated to the wrapped
+ * {@link SessionHandler}, so existing sessions are loaded and stored as usual.
+ * For requests without a session cookie, or whose cookie refers to an expired or unknown session,
+ * no session is created upfront; a session is created,
+ * stored and sent to the client only if it is requested through {@link #session(RoutingContext, boolean)}.
+ * This way stateless requests (health checks, crawlers, favicons, ...) never reach the session store.
+ *
+ * Settings are applied to both the wrapped handler and lazily created sessions, so that their cookies
+ * are the same. A lazily created session is stored when the response has been sent, so that changes
+ * made while streaming the response body are not lost.
+ */
+public final class LazySessionHandler implements Handler<RoutingContext> {
+
+    private static final Logger logger = LoggerFactory.getLogger(LazySessionHandler.class);
+
+    private static final String CONTEXT_KEY = LazySessionHandler.class.getName();
+
+    private final SessionHandler delegate;
+    private final SessionStore sessionStore;
+    private long sessionTimeout = SessionHandler.DEFAULT_SESSION_TIMEOUT;
+    private String sessionCookieName = SessionHandler.DEFAULT_SESSION_COOKIE_NAME;
+    private String sessionCookiePath = SessionHandler.DEFAULT_SESSION_COOKIE_PATH;
+    private boolean cookieSecure = SessionHandler.DEFAULT_COOKIE_SECURE_FLAG;
+    private boolean cookieHttpOnly = SessionHandler.DEFAULT_COOKIE_HTTP_ONLY_FLAG;
+    private int minLength = SessionHandler.DEFAULT_SESSIONID_MIN_LENGTH;
+
+    private LazySessionHandler(SessionHandler delegate, SessionStore sessionStore) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.sessionStore = Objects.requireNonNull(sessionStore);
+    }
+
+    /**
+     * Creates a new lazy session handler, wrapping a {@link SessionHandler} for the given store.
+     *
+     * @param sessionStore the session store
+     * @return the lazy session handler
+     */
+    public static LazySessionHandler create(SessionStore sessionStore) {
+        return new LazySessionHandler(SessionHandler.create(sessionStore), sessionStore);
+    }
+
+    static LazySessionHandler create(SessionHandler delegate, SessionStore sessionStore) {
+        return new LazySessionHandler(delegate, sessionStore);
+    }
+
+    /**
+     * Gets the wrapped session handler, configured with the same settings.
+     *
+     * @return the wrapped session handler
+     */
+    public SessionHandler sessionHandler() {
+        return delegate;
+    }
+
+    /**
+     * @see SessionHandler#setSessionTimeout(long)
+     */
+    public LazySessionHandler setSessionTimeout(long timeout) {
+        delegate.setSessionTimeout(timeout);
+        this.sessionTimeout = timeout;
+        return this;
+    }
+
+    /**
+     * @see SessionHandler#setSessionCookieName(String)
+     */
+    public LazySessionHandler setSessionCookieName(String sessionCookieName) {
+        delegate.setSessionCookieName(sessionCookieName);
+        this.sessionCookieName = Objects.requireNonNull(sessionCookieName);
+        return this;
+    }
+
+    /**
+     * @see SessionHandler#setSessionCookiePath(String)
+     */
+    public LazySessionHandler setSessionCookiePath(String sessionCookiePath) {
+        delegate.setSessionCookiePath(sessionCookiePath);
+        this.sessionCookiePath = Objects.requireNonNull(sessionCookiePath);
+        return this;
+    }
+
+    /**
+     * @see SessionHandler#setCookieSecureFlag(boolean)
+     */
+    public LazySessionHandler setCookieSecureFlag(boolean secure) {
+        delegate.setCookieSecureFlag(secure);
+        this.cookieSecure = secure;
+        return this;
+    }
+
+    /**
+     * @see SessionHandler#setCookieHttpOnlyFlag(boolean)
+     */
+    public LazySessionHandler setCookieHttpOnlyFlag(boolean httpOnly) {
+        delegate.setCookieHttpOnlyFlag(httpOnly);
+        this.cookieHttpOnly = httpOnly;
+        return this;
+    }
+
+    /**
+     * @see SessionHandler#setMinLength(int)
+     */
+    public LazySessionHandler setMinLength(int minLength) {
+        delegate.setMinLength(minLength);
+        this.minLength = minLength;
+        return this;
+    }
+
+    /**
+     * @see SessionHandler#setNagHttps(boolean)
+     */
+    public LazySessionHandler setNagHttps(boolean nag) {
+        delegate.setNagHttps(nag);
+        return this;
+    }
+
+    @Override
+    public void handle(RoutingContext context) {
+        Cookie cookie = context.getCookie(sessionCookieName);
+        if (cookie != null) {
+            long retryTimeout = sessionStore.retryTimeout();
+            lookup(context, cookie.getValue(), retryTimeout > 0 ? System.currentTimeMillis() + retryTimeout : 0);
+        } else {
+            handleLazily(context);
+        }
+    }
+
+    // Stale cookies, as sent by returning visitors after the session timeout, must not create a session
+    private void lookup(RoutingContext context, String sessionId, long retryUntil) {
+        sessionStore.get(sessionId, res -> {
+            if (res.failed() || res.result() != null) {
+                // Existing sessions, and lookup failures, are handled by the session handler as usual
+                delegate.handle(context);
+            } else if (System.currentTimeMillis() < retryUntil) {
+                // As the session handler does, waits for sessions that may not be replicated yet
+                context.vertx().setTimer(5, tid -> lookup(context, sessionId, retryUntil));
+            } else {
+                handleLazily(context);
+            }
+        });
+    }
+
+    private void handleLazily(RoutingContext context) {
+        context.put(CONTEXT_KEY, this);
+        context.next();
+    }
+
+    /**
+     * Gets the session bound to the given context, eventually creating it.
+     *
+     * A new session is created only if {@code create} is true and the request has been
+     * handled by a {@link LazySessionHandler}.
+     *
+     * @param context the routing context
+     * @param create  whether a new session should be created if none is bound to the context
+     * @return the session bound to the context, or {@literal null}
+     */
+    public static Session session(RoutingContext context, boolean create) {
+        Session session = context.session();
+        if (session == null && create) {
+            LazySessionHandler handler = context.get(CONTEXT_KEY);
+            if (handler != null) {
+                session = handler.createSession(context);
+            }
+        }
+        return session;
+    }
+
+    private Session createSession(RoutingContext context) {
+        Session session = sessionStore.createSession(sessionTimeout, minLength);
+        context.setSession(session);
+        context.remove(CONTEXT_KEY);
+        context.addHeadersEndHandler(v -> {
+            if (session.isDestroyed()) {
+                return;
+            }
+            Cookie cookie = Cookie.cookie(sessionCookieName, session.id())
+                .setPath(sessionCookiePath)
+                .setSecure(cookieSecure)
+                .setHttpOnly(cookieHttpOnly);
+            context.addCookie(cookie);
+        });
+        // Headers of streamed responses are sent before the session is done with
+        context.addBodyEndHandler(v -> {
+            if (session.isDestroyed()) {
+                return;
+            }
+            session.setAccessed();
+            sessionStore.put(session, res -> {
+                if (res.failed()) {
+                    logger.error("Failed to store session " + session.id(), res.cause());
+                }
+            });
+        });
+        return session;
+    }
+}
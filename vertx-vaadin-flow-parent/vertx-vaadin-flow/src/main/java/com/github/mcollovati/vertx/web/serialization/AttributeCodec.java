@@ -0,0 +1,65 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.web.serialization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Encodes and decodes session attributes that are not natively supported by the clustered session format.
+ *
+ * Every encoded attribute is tagged with the {@link #id()} of the codec that wrote it,
+ * so nodes can read attributes written with any registered codec.
+ * Codec ids must be unique and the same codec must be registered with the same configuration on all nodes.
+ *
+ * @see SerializationSupport#create(AttributeCodec, int)
+ */
+public interface AttributeCodec {
+
+    /**
+     * Gets the identifier written in front of every attribute encoded by this codec.
+     *
+     * @return the codec id
+     */
+    byte id();
+
+    /**
+     * Writes the given attribute to the stream.
+     *
+     * @param object the attribute to encode
+     * @param out    the stream to write to
+     * @throws IOException if the attribute cannot be encoded
+     */
+    void encode(Object object, OutputStream out) throws IOException;
+
+    /**
+     * Reads an attribute previously written by {@link #encode(Object, OutputStream)}.
+     *
+     * @param in the stream to read from
+     * @return the decoded attribute
+     * @throws IOException            if the attribute cannot be decoded
+     * @throws ClassNotFoundException if the attribute class cannot be found
+     */
+    Object decode(InputStream in) throws IOException, ClassNotFoundException;
+}
@@ -0,0 +1,250 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.web.serialization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * An {@link AttributeCodec} built on Java serialization that writes registered classes as a numeric id
+ * instead of a full class descriptor, and omits the stream header.
+ *
+ * Session attributes such as a {@code VaadinSession} are large object graphs referencing the same
+ * few classes over and over; each class descriptor carries the class name, serial version and field
+ * names and types, which often outweighs the field values themselves.
+ * Unregistered classes are written with their full descriptor, so any serializable object can be encoded.
+ * Object streams are reused by the encoding thread, see {@link ReusableObjectOutput}.
+ *
+ * Class ids are part of the wire format: all nodes must register the same classes with the same ids.
+ * Negative ids are reserved for the built-in registrations of common JDK classes.
+ */
+public final class CompactBinaryCodec implements AttributeCodec {
+
+    public static final byte ID = 1;
+
+    private static final int FULL_DESCRIPTOR = 0;
+    private static final int REGISTERED = 1;
+
+    private static final List<Class<?>> BUILT_IN = Collections.unmodifiableList(Arrays.asList(
+        Object[].class, String[].class, Number.class, Integer.class, Long.class, Double.class, Float.class,
+        Short.class, Byte.class, Boolean.class, Character.class, Enum.class,
+        ArrayList.class, LinkedList.class, CopyOnWriteArrayList.class,
+        HashMap.class, LinkedHashMap.class, TreeMap.class, ConcurrentHashMap.class,
+        HashSet.class, LinkedHashSet.class, TreeSet.class, Locale.class, UUID.class
+    ));
+
+    private final Map<Class<?>, Integer> idsByClass;
+    private final Map<Integer, Class<?>> classesById;
+    private final Map<String, Class<?>> classesByName;
+    private final ReusableObjectOutput output = new ReusableObjectOutput(CompactObjectOutputStream::new, new byte[0]);
+
+    private CompactBinaryCodec(Map<Integer, Class<?>> classesById) {
+        this.classesById = classesById;
+        this.idsByClass = new HashMap<>();
+        this.classesByName = new HashMap<>();
+        classesById.forEach((id, type) -> {
+            idsByClass.put(type, id);
+            classesByName.put(type.getName(), type);
+        });
+    }
+
+    /**
+     * Creates a codec with only the built-in registrations.
+     *
+     * @return a compact binary codec
+     */
+    public static CompactBinaryCodec create() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public byte id() {
+        return ID;
+    }
+
+    @Override
+    public void encode(Object object, OutputStream out) throws IOException {
+        output.write(object, out);
+    }
+
+    @Override
+    public Object decode(InputStream in) throws IOException, ClassNotFoundException {
+        return new CompactObjectInputStream(in).readObject();
+    }
+
+    private static void writeVarInt(ObjectOutputStream out, int value) throws IOException {
+        int zigZag = (value << 1) ^ (value >> 31);
+        while ((zigZag & ~0x7F) != 0) {
+            out.writeByte((zigZag & 0x7F) | 0x80);
+            zigZag >>>= 7;
+        }
+        out.writeByte(zigZag);
+    }
+
+    private static int readVarInt(ObjectInputStream in) throws IOException {
+        int zigZag = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            zigZag |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigZag >>> 1) ^ -(zigZag & 1);
+            }
+        }
+        throw new IOException("Malformed class id");
+    }
+
+    private final class CompactObjectOutputStream extends ObjectOutputStream {
+
+        CompactObjectOutputStream(OutputStream out) throws IOException {
+            super(out);
+        }
+
+        @Override
+        protected void writeStreamHeader() {
+            // The codec id already identifies the format
+        }
+
+        @Override
+        protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException {
+            Class<?> type = desc.forClass();
+            Integer id = type != null ? idsByClass.get(type) : null;
+            if (id == null) {
+                writeByte(FULL_DESCRIPTOR);
+                super.writeClassDescriptor(desc);
+            } else {
+                writeByte(REGISTERED);
+                writeVarInt(this, id);
+            }
+        }
+    }
+
+    private final class CompactObjectInputStream extends ObjectInputStream {
+
+        CompactObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected void readStreamHeader() {
+            // The codec id already identifies the format
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            int kind = readUnsignedByte();
+            if (kind == FULL_DESCRIPTOR) {
+                return super.readClassDescriptor();
+            }
+            if (kind != REGISTERED) {
+                throw new IOException("Unknown class descriptor type " + kind);
+            }
+            int id = readVarInt(this);
+            Class<?> type = classesById.get(id);
+            if (type == null) {
+                throw new ClassNotFoundException("No class registered with id " + id);
+            }
+            return ObjectStreamClass.lookupAny(type);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            Class<?> type = classesByName.get(desc.getName());
+            return type != null ? type : super.resolveClass(desc);
+        }
+    }
+
+    public static final class Builder {
+
+        private final Map<Integer, Class<?>> classesById = new HashMap<>();
+
+        private Builder() {
+            for (int i = 0; i < BUILT_IN.size(); i++) {
+                classesById.put(-(i + 1), BUILT_IN.get(i));
+            }
+        }
+
+        /**
+         * Registers a class with the given id.
+         *
+         * @param type the class to register
+         * @param id   the class id, must be non negative and unique
+         * @return this builder
+         */
+        public Builder register(Class<?> type, int id) {
+            Objects.requireNonNull(type);
+            if (id < 0) {
+                throw new IllegalArgumentException("Class id must not be negative: " + id);
+            }
+            if (classesById.containsValue(type)) {
+                throw new IllegalArgumentException("Class " + type.getName() + " is already registered");
+            }
+            Class<?> previous = classesById.putIfAbsent(id, type);
+            if (previous != null) {
+                throw new IllegalArgumentException("Class id " + id + " is already registered for " + previous.getName());
+            }
+            return this;
+        }
+
+        /**
+         * Registers the given classes with consecutive ids, starting from 0.
+         *
+         * @param types the classes to register
+         * @return this builder
+         */
+        public Builder registerAll(List<Class<?>> types) {
+            for (int i = 0; i < types.size(); i++) {
+                register(types.get(i), i);
+            }
+            return this;
+        }
+
+        public CompactBinaryCodec build() {
+            return new CompactBinaryCodec(new HashMap<>(classesById));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.web.serialization;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes objects through a per thread {@link ObjectOutputStream} that is reset and reused,
+ * instead of creating a stream, with its block data buffers and handle tables, for every object.
+ *
+ * The stream writes to a sink that is pointed to the caller's output for the duration of a write;
+ * after each object the stream is reset while the sink discards output, so that the reset marker is
+ * not written and every object is encoded exactly as by a new stream.
+ * Since the stream header is also discarded, it must be given to {@link #ReusableObjectOutput(Factory, byte[])}
+ * to be written before each object.
+ */
+final class ReusableObjectOutput {
+
+    interface Factory {
+        ObjectOutputStream create(OutputStream out) throws IOException;
+    }
+
+    private final Factory factory;
+    private final byte[] header;
+    private final ThreadLocal<Entry> entries;
+
+    ReusableObjectOutput(Factory factory, byte[] header) {
+        this.factory = factory;
+        this.header = header.clone();
+        this.entries = ThreadLocal.withInitial(this::newEntry);
+    }
+
+    void write(Object object, OutputStream out) throws IOException {
+        Entry entry = entries.get();
+        if (entry.inUse) {
+            // Reentrant call, for example from a writeObject method
+            ObjectOutputStream stream = factory.create(out);
+            stream.writeObject(object);
+            stream.flush();
+            return;
+        }
+        entry.inUse = true;
+        boolean reusable = false;
+        try {
+            entry.sink.target = out;
+            out.write(header);
+            entry.stream.writeObject(object);
+            entry.stream.flush();
+            entry.sink.target = null;
+            entry.stream.reset();
+            entry.stream.flush();
+            reusable = true;
+        } finally {
+            entry.sink.target = null;
+            entry.inUse = false;
+            if (!reusable) {
+                // Stream state is unknown after a failure
+                entries.remove();
+            }
+        }
+    }
+
+    private Entry newEntry() {
+        Sink sink = new Sink();
+        try {
+            return new Entry(sink, factory.create(sink));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static final class Entry {
+        private final Sink sink;
+        private final ObjectOutputStream stream;
+        private boolean inUse;
+
+        private Entry(Sink sink, ObjectOutputStream stream) {
+            this.sink = sink;
+            this.stream = stream;
+        }
+    }
+
+    private static final class Sink extends OutputStream {
+        private OutputStream target;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (target != null) {
+                target.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (target != null) {
+                target.write(b, off, len);
+            }
+        }
+    }
+}
@@ -1,34 +1,103 @@
 package com.github.mcollovati.vertx.web.serialization;
 
+import java.util.Objects;
+
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.shareddata.impl.ClusterSerializable;
 
+/**
+ * Holds a session attribute that is not natively cluster serializable.
+ *
+ * When read from a buffer the attribute is kept encoded, as a slice of the source buffer,
+ * and decoded on the first {@link #get()}; an attribute that was never decoded is written
+ * back as is, without serializing it again.
+ *
+ * A decoded attribute keeps its encoded form after being written, so that writing the same session
+ * more than once, for example as a delta and as a full entry, serializes it only once; the encoded
+ * form is dropped when the attribute is handed out by {@link #get()}, since it may then be changed
+ * in place, and by {@link #dropEncoded()}.
+ *
+ * Attributes are encoded with the {@link SerializationSupport} given at construction, or with the one
+ * passed to {@link #get(SerializationSupport)} for holders read from a buffer.
+ */
 public class SerializableHolder implements ClusterSerializable {
 
     private transient Object object;
+    private transient boolean decoded;
+    private transient Buffer encoded;
+    private transient SerializationSupport serialization = SerializationSupport.DEFAULT;
 
     public SerializableHolder() {
     }
 
     public SerializableHolder(Object object) {
+        this(object, SerializationSupport.DEFAULT);
+    }
+
+    public SerializableHolder(Object object, SerializationSupport serialization) {
         this.object = object;
+        this.decoded = true;
+        this.serialization = Objects.requireNonNull(serialization);
     }
 
     @Override
-    public void writeToBuffer(Buffer buffer) {
-        SerializationSupport.writeToBuffer(buffer, object);
+    public synchronized void writeToBuffer(Buffer buffer) {
+        if (encoded != null) {
+            buffer.appendBuffer(encoded);
+        } else {
+            int start = buffer.length();
+            serialization.writeToBuffer(buffer, object);
+            encoded = buffer.getBuffer(start, buffer.length());
+        }
     }
 
     @Override
-    public int readFromBuffer(int pos, Buffer buffer) {
-        return SerializationSupport.readFromBuffer(pos, buffer, this::set);
+    public synchronized int readFromBuffer(int pos, Buffer buffer) {
+        int end = SerializationSupport.skip(pos, buffer);
+        encoded = buffer.slice(pos, end);
+        object = null;
+        decoded = false;
+        return end;
     }
 
     private void set(Object object) {
         this.object = object;
     }
 
-    public Object get() {
+    public synchronized Object get() {
+        return get(serialization);
+    }
+
+    /**
+     * Gets the attribute, decoding it if needed with the given serialization support,
+     * that is also used to encode the attribute from now on.
+     *
+     * @param serialization the serialization support
+     * @return the attribute
+     */
+    public synchronized Object get(SerializationSupport serialization) {
+        this.serialization = Objects.requireNonNull(serialization);
+        if (!decoded) {
+            serialization.readFromBuffer(0, encoded, this::set);
+            decoded = true;
+        }
+        // Once handed out the object may be changed in place, so it must be serialized again
+        encoded = null;
         return object;
     }
+
+    /**
+     * Drops the encoded form of a decoded attribute, so that it is serialized again on the next write.
+     *
+     * Attributes that were never decoded keep their encoded form, that is their only content.
+     */
+    public synchronized void dropEncoded() {
+        if (decoded) {
+            encoded = null;
+        }
+    }
+
+    boolean isDecoded() {
+        return decoded;
+    }
 }
@@ -1,45 +1,237 @@
 package com.github.mcollovati.vertx.web.serialization;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
+import com.github.mcollovati.vertx.support.BufferInputStreamAdapter;
+import com.github.mcollovati.vertx.support.BufferOutputStreamAdapter;
 import io.vertx.core.buffer.Buffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class SerializationSupport {
+/**
+ * Writes and reads session attributes with a given {@link AttributeCodec} and compression threshold.
+ *
+ * Instances are immutable and owned by session stores, so stores with different settings
+ * can live in the same JVM; {@link #DEFAULT} uses Java serialization without compression.
+ *
+ * Each attribute is written as the codec id, the payload length and the payload,
+ * so attributes are always read with the codec that wrote them, provided that it is the
+ * codec of this instance or one of the built-in codecs.
+ *
+ * Payloads larger than the {@link #compressionThreshold() compression threshold} are compressed;
+ * this is marked by the high bit of the codec id, and the compressed payload starts with the
+ * compression algorithm id and the uncompressed length, so that other algorithms can be added later.
+ *
+ * Attributes written by previous versions, as the payload length followed by a Java serialization
+ * stream, are still read: they are recognized by the stream magic number following the length,
+ * which cannot be produced by the current format for the built-in codecs.
+ */
+public final class SerializationSupport {
 
     private static final Logger logger = LoggerFactory.getLogger(SerializationSupport.class);
 
-    public static void writeToBuffer(Buffer buffer, Object object) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try (ObjectOutputStream objectStream = new ObjectOutputStream(baos)) {
-            objectStream.writeObject(object);
-            objectStream.flush();
+    private static final int HEADER_LENGTH = 5;
+    private static final int LEGACY_HEADER_LENGTH = 4;
+    private static final int COMPRESSED = 0x80;
+    private static final byte DEFLATE = 1;
+    // Scratch buffers grown above this size are not kept by the thread
+    private static final int MAX_RETAINED_SCRATCH = 1024 * 1024;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * Java serialization, without compression.
+     */
+    public static final SerializationSupport DEFAULT = new SerializationSupport(JavaSerializationCodec.INSTANCE, -1);
+
+    private final AttributeCodec codec;
+    private final int compressionThreshold;
+    private final Map<Byte, AttributeCodec> codecs = new HashMap<>();
+
+    private SerializationSupport(AttributeCodec codec, int compressionThreshold) {
+        if ((codec.id() & COMPRESSED) != 0) {
+            throw new IllegalArgumentException("Codec id must be between 0 and 127: " + codec.id());
+        }
+        this.codec = codec;
+        this.compressionThreshold = compressionThreshold;
+        codecs.put(JavaSerializationCodec.ID, JavaSerializationCodec.INSTANCE);
+        codecs.put(CompactBinaryCodec.ID, CompactBinaryCodec.create());
+        codecs.put(codec.id(), codec);
+    }
+
+    /**
+     * Creates an instance that writes attributes with the given codec.
+     *
+     * @param codec                the codec
+     * @param compressionThreshold the payload size, in bytes, above which compression is used,
+     *                             or a negative value to disable compression
+     * @return the serialization support
+     */
+    public static SerializationSupport create(AttributeCodec codec, int compressionThreshold) {
+        return new SerializationSupport(Objects.requireNonNull(codec), compressionThreshold);
+    }
+
+    /**
+     * Gets the codec used to write attributes.
+     *
+     * @return the codec
+     */
+    public AttributeCodec codec() {
+        return codec;
+    }
+
+    /**
+     * Gets the size, in bytes, above which attribute payloads are compressed.
+     *
+     * @return the compression threshold, negative if compression is disabled
+     */
+    public int compressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public void writeToBuffer(Buffer buffer, Object object) {
+        int start = buffer.length();
+        if (compressionThreshold < 0) {
+            buffer.appendByte(codec.id()).appendInt(0);
+            encode(object, new BufferOutputStreamAdapter(buffer));
+        } else {
+            Scratch shared = SCRATCH.get();
+            Scratch scratch = shared.inUse ? new Scratch() : shared;
+            scratch.inUse = true;
+            try {
+                encode(object, scratch.payload);
+                int size = scratch.payload.size();
+                if (size <= compressionThreshold) {
+                    buffer.appendByte(codec.id()).appendInt(0).appendBytes(scratch.payload.array(), 0, size);
+                } else {
+                    buffer.appendByte((byte) (codec.id() | COMPRESSED)).appendInt(0)
+                        .appendByte(DEFLATE).appendInt(size);
+                    scratch.deflate(buffer);
+                }
+            } finally {
+                scratch.release(scratch == shared);
+            }
+        }
+        buffer.setInt(start + 1, buffer.length() - start - HEADER_LENGTH);
+    }
+
+    private void encode(Object object, OutputStream out) {
+        try {
+            codec.encode(object, out);
         } catch (Exception ex) {
             logger.error("Error serializing object of type {}", object.getClass(), ex);
         }
-        buffer.appendInt(baos.size());
-        buffer.appendBytes(baos.toByteArray());
     }
 
-    @SuppressWarnings("unchecked")
-    public static <T> int readFromBuffer(int pos, Buffer buffer, Consumer<T> objectConsumer) {
-        int size = buffer.getInt(pos);
-        pos += 4;
+    /**
+     * Gets the position after the attribute written at the given position, without decoding it.
+     *
+     * @param pos    the position of the attribute
+     * @param buffer the buffer
+     * @return the position after the attribute
+     */
+    public static int skip(int pos, Buffer buffer) {
+        if (isLegacy(pos, buffer)) {
+            return pos + LEGACY_HEADER_LENGTH + buffer.getInt(pos);
+        }
+        return pos + HEADER_LENGTH + buffer.getInt(pos + 1);
+    }
+
+    public <T> int readFromBuffer(int pos, Buffer buffer, Consumer<T> objectConsumer) {
+        if (isLegacy(pos, buffer)) {
+            int end = pos + LEGACY_HEADER_LENGTH + buffer.getInt(pos);
+            decode(JavaSerializationCodec.INSTANCE, new BufferInputStreamAdapter(buffer.slice(pos + LEGACY_HEADER_LENGTH, end)), objectConsumer);
+            return end;
+        }
+        byte header = buffer.getByte(pos);
+        byte codecId = (byte) (header & ~COMPRESSED);
+        boolean compressed = (header & COMPRESSED) != 0;
+        int size = buffer.getInt(pos + 1);
+        pos += HEADER_LENGTH;
         int end = pos + size;
-        try (ObjectInputStream is = new ObjectInputStream(new ByteArrayInputStream(buffer.getBytes(pos, end)))) {
-            Object object = is.readObject();
+        AttributeCodec attributeCodec = codecs.get(codecId);
+        if (attributeCodec == null) {
+            logger.error("Cannot deserialize object written with unknown codec {}", codecId);
+            return end;
+        }
+        if (!compressed) {
+            decode(attributeCodec, new BufferInputStreamAdapter(buffer.slice(pos, end)), objectConsumer);
+            return end;
+        }
+        if (buffer.getByte(pos) != DEFLATE) {
+            logger.error("Cannot deserialize object written with unknown compression {}", buffer.getByte(pos));
+            return end;
+        }
+        Inflater inflater = new Inflater();
+        try {
+            decode(attributeCodec, new InflaterInputStream(new BufferInputStreamAdapter(buffer.slice(pos + 5, end)), inflater, 8192), objectConsumer);
+        } finally {
+            inflater.end();
+        }
+        return end;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void decode(AttributeCodec attributeCodec, InputStream in, Consumer<T> objectConsumer) {
+        try {
+            Object object = attributeCodec.decode(in);
             objectConsumer.accept((T) object);
         } catch (Exception ex) {
             logger.error("Error deserializing object", ex);
         }
-        return end;
     }
 
-}
+    private static boolean isLegacy(int pos, Buffer buffer) {
+        // Java serialization magic number, where the current format has the last length byte and the payload start
+        return buffer.length() >= pos + LEGACY_HEADER_LENGTH + 2
+            && (buffer.getByte(pos + LEGACY_HEADER_LENGTH) & 0xFF) == 0xAC
+            && (buffer.getByte(pos + LEGACY_HEADER_LENGTH + 1) & 0xFF) == 0xED;
+    }
+
+    /**
+     * Per thread buffers reused to encode and compress payloads.
+     */
+    private static final class Scratch {
+        private final ExposedByteArrayOutputStream payload = new ExposedByteArrayOutputStream();
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final byte[] chunk = new byte[8192];
+        private boolean inUse;
+
+        void deflate(Buffer buffer) {
+            deflater.setInput(payload.array(), 0, payload.size());
+            deflater.finish();
+            while (!deflater.finished()) {
+                int count = deflater.deflate(chunk);
+                buffer.appendBytes(chunk, 0, count);
+            }
+        }
 
+        void release(boolean retain) {
+            inUse = false;
+            if (retain && payload.array().length <= MAX_RETAINED_SCRATCH) {
+                deflater.reset();
+                payload.reset();
+            } else {
+                deflater.end();
+                if (retain) {
+                    SCRATCH.remove();
+                }
+            }
+        }
+    }
 
+    private static final class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+        byte[] array() {
+            return buf;
+        }
+    }
+}
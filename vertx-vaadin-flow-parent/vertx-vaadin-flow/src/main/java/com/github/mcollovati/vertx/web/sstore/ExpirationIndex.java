@@ -0,0 +1,160 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.web.sstore;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+
+import io.vertx.ext.web.Session;
+
+/**
+ * Deadline ordered index of session expirations.
+ *
+ * Sessions are scheduled every time they are stored, so that the reaper only needs
+ * to visit sessions whose deadline has passed instead of scanning the whole store.
+ * A due session may have been accessed after it was scheduled, so callers are expected
+ * to check the actual expiration before removing it, and to schedule it again if still alive.
+ */
+final class ExpirationIndex {
+
+    private static final Comparator<Deadline> ORDER = Comparator.<Deadline>comparingLong(d -> d.expiresAt)
+        .thenComparing(d -> d.id);
+
+    private final NavigableSet<Deadline> deadlines = new ConcurrentSkipListSet<>(ORDER);
+    private final Map<String, Deadline> byId = new ConcurrentHashMap<>();
+
+    /**
+     * Computes the time after which the session is expired if not accessed again.
+     *
+     * @param session the session
+     * @return the expiration time, in ms; {@link Long#MAX_VALUE} if the session never expires
+     */
+    static long deadline(Session session) {
+        long lastAccessed = session.lastAccessed();
+        long timeout = session.timeout();
+        return timeout > Long.MAX_VALUE - lastAccessed ? Long.MAX_VALUE : lastAccessed + timeout;
+    }
+
+    /**
+     * Schedules the expiration of a session, replacing the previous deadline if any.
+     *
+     * @param id        the session id
+     * @param expiresAt the time, in ms, after which the session is expired
+     */
+    void schedule(String id, long expiresAt) {
+        Deadline deadline = new Deadline(id, expiresAt);
+        byId.compute(id, (key, previous) -> {
+            if (previous != null) {
+                deadlines.remove(previous);
+            }
+            deadlines.add(deadline);
+            return deadline;
+        });
+    }
+
+    /**
+     * Removes the session from the index.
+     *
+     * @param id the session id
+     */
+    void remove(String id) {
+        byId.computeIfPresent(id, (key, previous) -> {
+            deadlines.remove(previous);
+            return null;
+        });
+    }
+
+    /**
+     * Removes all sessions from the index.
+     */
+    void clear() {
+        byId.keySet().forEach(this::remove);
+    }
+
+    /**
+     * Removes from the index all sessions whose deadline is before the given time,
+     * in deadline order, and passes their ids to the consumer.
+     *
+     * @param now      the current time, in ms
+     * @param consumer the consumer of due session ids
+     */
+    void pollDue(long now, Consumer<String> consumer) {
+        pollDue(now, Integer.MAX_VALUE, consumer);
+    }
+
+    /**
+     * Removes from the index at most {@code limit} sessions whose deadline is before the given time,
+     * in deadline order, and passes their ids to the consumer.
+     *
+     * @param now      the current time, in ms
+     * @param limit    the maximum number of sessions to remove
+     * @param consumer the consumer of due session ids
+     * @return the number of sessions removed
+     */
+    int pollDue(long now, int limit, Consumer<String> consumer) {
+        int polled = 0;
+        for (Deadline deadline : deadlines) {
+            if (polled >= limit || deadline.expiresAt >= now) {
+                break;
+            }
+            boolean[] due = new boolean[1];
+            // Index updates for a session are serialized by the map, so a concurrent schedule cannot be lost
+            byId.computeIfPresent(deadline.id, (key, current) -> {
+                if (current != deadline) {
+                    return current;
+                }
+                deadlines.remove(deadline);
+                due[0] = true;
+                return null;
+            });
+            if (due[0]) {
+                polled++;
+                consumer.accept(deadline.id);
+            }
+        }
+        return polled;
+    }
+
+    /**
+     * Gets the number of scheduled sessions.
+     *
+     * @return the number of sessions in the index
+     */
+    int size() {
+        return byId.size();
+    }
+
+    private static final class Deadline {
+        private final String id;
+        private final long expiresAt;
+
+        private Deadline(String id, long expiresAt) {
+            this.id = id;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
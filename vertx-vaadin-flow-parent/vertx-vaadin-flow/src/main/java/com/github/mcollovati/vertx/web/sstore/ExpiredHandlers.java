@@ -0,0 +1,85 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.web.sstore;
+
+import java.util.List;
+
+import com.github.mcollovati.vertx.web.ExtendedSession;
+import com.github.mcollovati.vertx.web.ExtendedSessionImpl;
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.Session;
+
+/**
+ * Helpers for calling the expired handlers of sessions removed by a reaper run.
+ *
+ * Sessions are collected while the reaper visits the expiration index, and their handlers
+ * are called afterwards in a single event loop task, outside of the index locks.
+ */
+final class ExpiredHandlers {
+
+    private ExpiredHandlers() {
+    }
+
+    /**
+     * Checks if expired handlers have been added to the session.
+     *
+     * @param session the session
+     * @return true if the session has expired handlers
+     */
+    static boolean has(Session session) {
+        return extended(session) != null;
+    }
+
+    /**
+     * Adds the session to the batch if it has expired handlers.
+     *
+     * @param session the expired session
+     * @param batch   the sessions whose handlers should be called
+     */
+    static void collect(Session session, List<ExtendedSessionImpl> batch) {
+        ExtendedSessionImpl extended = extended(session);
+        if (extended != null) {
+            batch.add(extended);
+        }
+    }
+
+    /**
+     * Calls the expired handlers of the collected sessions on the current context.
+     *
+     * @param vertx the vertx instance
+     * @param batch the sessions whose handlers should be called
+     */
+    static void fire(Vertx vertx, List<ExtendedSessionImpl> batch) {
+        if (!batch.isEmpty()) {
+            vertx.runOnContext(v -> batch.forEach(ExtendedSessionImpl::fireExpiredHandlers));
+        }
+    }
+
+    private static ExtendedSessionImpl extended(Session session) {
+        ExtendedSession extended = ExtendedSession.adapt(session);
+        if (extended instanceof ExtendedSessionImpl && ((ExtendedSessionImpl) extended).hasExpiredHandlers()) {
+            return (ExtendedSessionImpl) extended;
+        }
+        return null;
+    }
+}
@@ -22,6 +22,10 @@
  */
 package com.github.mcollovati.vertx.web.sstore;
 
+import java.nio.file.Path;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 
 
@@ -74,4 +78,51 @@ public interface ExtendedLocalSessionStore extends ExtendedSessionStore {
         return new ExtendedLocalSessionStoreImpl(vertx, sessionMapName, reaperInterval);
     }
 
+    /**
+     * Create a session store that passivates idle sessions to a local file.
+     *
+     * Sessions not accessed for {@code passivationIdleTime} are written to a file in {@code passivationDirectory}
+     * and removed from memory; they are read back transparently on the next access, and still expire
+     * after their timeout.
+     *
+     * @param vertx                the Vert.x instance
+     * @param sessionMapName       name for map used to store sessions
+     * @param reaperInterval       how often, in ms, to check for expired and idle sessions
+     * @param passivationDirectory the directory for the passivation file
+     * @param passivationIdleTime  how long, in ms, a session must be idle before being passivated
+     * @return the session store
+     */
+    static ExtendedLocalSessionStore create(Vertx vertx, String sessionMapName, long reaperInterval,
+                                            Path passivationDirectory, long passivationIdleTime) {
+        return new ExtendedLocalSessionStoreImpl(vertx, sessionMapName, reaperInterval, passivationDirectory, passivationIdleTime);
+    }
+
+    /**
+     * Writes all live sessions, including passivated ones, to a snapshot file.
+     *
+     * Sessions are serialized in parallel; sessions that cannot be serialized are skipped.
+     *
+     * @param file          the snapshot file, replaced if it exists
+     * @param resultHandler will be called with the number of sessions written
+     */
+    void snapshot(Path file, Handler<AsyncResult<Integer>> resultHandler);
+
+    /**
+     * Restores the sessions from a snapshot file written by {@link #snapshot(Path, Handler)}, then deletes the file.
+     *
+     * Sessions keep their last access time, so they expire as if the store had not been restarted;
+     * sessions already expired are skipped, and nothing is restored if the file does not exist.
+     *
+     * @param file          the snapshot file
+     * @param resultHandler will be called with the number of sessions restored
+     */
+    void restore(Path file, Handler<AsyncResult<Integer>> resultHandler);
+
+    /**
+     * Gets the number of sessions currently passivated to disk.
+     *
+     * @return the number of passivated sessions
+     */
+    int passivatedSessions();
+
 }
@@ -22,35 +22,77 @@
  */
 package com.github.mcollovati.vertx.web.sstore;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
-import java.util.Set;
+import java.util.stream.Collectors;
 
+import com.github.mcollovati.vertx.web.AdjustableTimeoutSessionImpl;
+import com.github.mcollovati.vertx.web.ExtendedSessionImpl;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.VertxException;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.shareddata.LocalMap;
+import io.vertx.ext.auth.PRNG;
 import io.vertx.ext.web.Session;
-import io.vertx.ext.web.sstore.LocalSessionStore;
-import io.vertx.ext.web.sstore.impl.LocalSessionStoreImpl;
+import io.vertx.ext.web.sstore.AbstractSession;
+import io.vertx.ext.web.sstore.SessionStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-class ExtendedLocalSessionStoreImpl implements ExtendedLocalSessionStore {
+/**
+ * Local session store that keeps track of session deadlines in a {@link SegmentedExpirationIndex},
+ * so that each reaper run only visits sessions that are due.
+ * A reaper run handles a bounded number of sessions and, if more are due, the next run is queued
+ * on the event loop right away instead of waiting for the reaper interval.
+ *
+ * When passivation is enabled, sessions idle for longer than the passivation idle time are moved
+ * by the reaper to a local file and dropped from the local map; they are read back on the next get.
+ * Passivated sessions still expire after their timeout.
+ * Stores created with the same session map name and passivation directory share the passivation file,
+ * so a session passivated by one of them is activated by a get on any other.
+ */
+class ExtendedLocalSessionStoreImpl implements ExtendedLocalSessionStore, Handler<Long> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExtendedLocalSessionStoreImpl.class);
 
+    private static final int REAPER_BATCH_SIZE = 1000;
 
+    private final Vertx vertx;
+    private final long reaperInterval;
     private final LocalMap<String, Session> localMap;
-    private final LocalSessionStore sessionsStore;
+    private final PRNG random;
+    private final SegmentedExpirationIndex expirations = new SegmentedExpirationIndex();
+    private final SegmentedExpirationIndex idleDeadlines = new SegmentedExpirationIndex();
+    private final SessionPassivator passivator;
+    private final long passivationIdleTime;
     private Handler<AsyncResult<String>> expirationHandler = x -> {};
+    private volatile long timerID = -1;
+    private volatile boolean closed;
 
     public ExtendedLocalSessionStoreImpl(Vertx vertx, String sessionMapName, long reaperInterval) {
+        this(vertx, sessionMapName, reaperInterval, null, 0);
+    }
+
+    public ExtendedLocalSessionStoreImpl(Vertx vertx, String sessionMapName, long reaperInterval,
+                                         Path passivationDirectory, long passivationIdleTime) {
+        this.vertx = vertx;
+        this.reaperInterval = reaperInterval;
         this.localMap = vertx.sharedData().getLocalMap(sessionMapName);
-        this.sessionsStore = new LocalSessionStoreImpl() {
-            @Override
-            public synchronized void handle(Long tid) {
-                notifyExpiredSessions(() -> super.handle(tid));
-            }
-        };
-        this.sessionsStore.init(vertx, new JsonObject().put("mapName", sessionMapName).put("reaperInterval", reaperInterval));
+        this.random = new PRNG(vertx);
+        this.passivator = passivationDirectory == null ? null : SessionPassivator.acquire(vertx,
+            passivationDirectory.resolve(sessionMapName + ".passivated"));
+        this.passivationIdleTime = passivationIdleTime;
+        setTimer();
     }
 
     @Override
@@ -66,55 +108,247 @@ class ExtendedLocalSessionStoreImpl implements ExtendedLocalSessionStore {
 
     @Override
     public long retryTimeout() {
-        return sessionsStore.retryTimeout();
+        return 0;
     }
 
     @Override
     public Session createSession(long timeout) {
-        return sessionsStore.createSession(timeout);
+        return new AdjustableTimeoutSessionImpl(random, timeout, SessionStore.DEFAULT_SESSIONID_LENGTH);
     }
 
     @Override
     public Session createSession(long timeout, int length) {
-        return sessionsStore.createSession(timeout, length);
+        return new AdjustableTimeoutSessionImpl(random, timeout, length);
     }
 
     @Override
     public void get(String id, Handler<AsyncResult<Session>> resultHandler) {
-        sessionsStore.get(id, resultHandler);
+        Session session = localMap.get(id);
+        if (session != null || passivator == null || !passivator.contains(id)) {
+            resultHandler.handle(Future.succeededFuture(session));
+            return;
+        }
+        passivator.activate(id, res -> {
+            if (res.failed()) {
+                resultHandler.handle(Future.failedFuture(res.cause()));
+                return;
+            }
+            Session activated = res.result();
+            if (activated == null) {
+                // Expired or put again while being read
+                resultHandler.handle(Future.succeededFuture(localMap.get(id)));
+            } else if (System.currentTimeMillis() - activated.lastAccessed() > activated.timeout()) {
+                expirations.remove(id);
+                onSessionExpired(id);
+                resultHandler.handle(Future.succeededFuture());
+            } else {
+                Session current = localMap.putIfAbsent(id, activated);
+                // May have been passivated by another store sharing the map
+                expirations.schedule(id, ExpirationIndex.deadline(activated));
+                scheduleIdle(id, activated);
+                resultHandler.handle(Future.succeededFuture(current != null ? current : activated));
+            }
+        });
     }
 
     @Override
     public void delete(String id, Handler<AsyncResult<Void>> resultHandler) {
-        sessionsStore.delete(id, resultHandler);
+        localMap.remove(id);
+        expirations.remove(id);
+        if (passivator != null) {
+            idleDeadlines.remove(id);
+            passivator.discard(id);
+        }
+        resultHandler.handle(Future.succeededFuture());
     }
 
-
     @Override
     public void put(Session session, Handler<AsyncResult<Void>> resultHandler) {
-        sessionsStore.put(session, resultHandler);
+        final AbstractSession oldSession = (AbstractSession) localMap.get(session.id());
+        final AbstractSession newSession = (AbstractSession) session;
+        if (oldSession != null && oldSession.version() != newSession.version()) {
+            resultHandler.handle(Future.failedFuture("Session version mismatch"));
+            return;
+        }
+        newSession.incrementVersion();
+        localMap.put(session.id(), session);
+        expirations.schedule(session.id(), ExpirationIndex.deadline(session));
+        if (passivator != null) {
+            // The session may have been read before it was passivated
+            passivator.discard(session.id());
+            scheduleIdle(session.id(), session);
+        }
+        resultHandler.handle(Future.succeededFuture());
     }
 
     @Override
     public void clear(Handler<AsyncResult<Void>> resultHandler) {
-        sessionsStore.clear(resultHandler);
+        localMap.clear();
+        expirations.clear();
+        if (passivator != null) {
+            idleDeadlines.clear();
+            passivator.clear();
+        }
+        resultHandler.handle(Future.succeededFuture());
     }
 
     @Override
     public void size(Handler<AsyncResult<Integer>> resultHandler) {
-        sessionsStore.size(resultHandler);
+        resultHandler.handle(Future.succeededFuture(localMap.size() + passivatedSessions()));
+    }
+
+    @Override
+    public int passivatedSessions() {
+        return passivator == null ? 0 : passivator.size();
+    }
+
+    @Override
+    public void snapshot(Path file, Handler<AsyncResult<Integer>> resultHandler) {
+        List<Session> sessions = new ArrayList<>(localMap.values());
+        Promise<List<Buffer>> passivated = Promise.promise();
+        if (passivator == null) {
+            passivated.complete(Collections.emptyList());
+        } else {
+            passivator.export(passivated);
+        }
+        passivated.future().setHandler(res -> {
+            if (res.failed()) {
+                resultHandler.handle(Future.failedFuture(res.cause()));
+                return;
+            }
+            vertx.<Integer>executeBlocking(promise -> {
+                List<Buffer> encoded = sessions.parallelStream()
+                    .map(SessionSnapshot::encode)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toCollection(ArrayList::new));
+                encoded.addAll(res.result());
+                SessionSnapshot.write(file, encoded);
+                promise.complete(encoded.size());
+            }, false, resultHandler);
+        });
+    }
+
+    @Override
+    public void restore(Path file, Handler<AsyncResult<Integer>> resultHandler) {
+        vertx.<List<Session>>executeBlocking(promise -> {
+            if (!Files.exists(file)) {
+                promise.complete(Collections.emptyList());
+                return;
+            }
+            long now = System.currentTimeMillis();
+            List<Session> sessions = SessionSnapshot.read(file).parallelStream()
+                .map(buffer -> SessionSnapshot.decode(buffer, random))
+                .filter(session -> now - session.lastAccessed() <= session.timeout())
+                .collect(Collectors.toList());
+            try {
+                // A snapshot is restored only once
+                Files.delete(file);
+            } catch (IOException ex) {
+                throw new VertxException("Cannot delete session snapshot " + file, ex);
+            }
+            promise.complete(sessions);
+        }, false, res -> {
+            if (res.failed()) {
+                resultHandler.handle(Future.failedFuture(res.cause()));
+                return;
+            }
+            int restored = 0;
+            for (Session session : res.result()) {
+                if (localMap.putIfAbsent(session.id(), session) == null) {
+                    expirations.schedule(session.id(), ExpirationIndex.deadline(session));
+                    if (passivator != null) {
+                        scheduleIdle(session.id(), session);
+                    }
+                    restored++;
+                }
+            }
+            resultHandler.handle(Future.succeededFuture(restored));
+        });
     }
 
     @Override
     public void close() {
-        sessionsStore.close();
+        closed = true;
+        localMap.close();
+        if (timerID != -1) {
+            vertx.cancelTimer(timerID);
+        }
+        random.close();
+        if (passivator != null) {
+            passivator.release();
+        }
+    }
+
+    @Override
+    public void handle(Long tid) {
+        if (closed) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<ExtendedSessionImpl> expired = new ArrayList<>();
+        boolean done = expirations.pollDue(now, REAPER_BATCH_SIZE, id -> {
+            Session session = localMap.get(id);
+            if (session == null) {
+                if (passivator != null && passivator.discard(id)) {
+                    onSessionExpired(id);
+                }
+                return;
+            }
+            if (now - session.lastAccessed() > session.timeout()) {
+                if (localMap.removeIfPresent(id, session)) {
+                    idleDeadlines.remove(id);
+                    ExpiredHandlers.collect(session, expired);
+                    onSessionExpired(id);
+                }
+            } else {
+                // Accessed after it was stored
+                expirations.schedule(id, ExpirationIndex.deadline(session));
+            }
+        });
+        if (passivator != null) {
+            done &= idleDeadlines.pollDue(now, REAPER_BATCH_SIZE, id -> {
+                Session session = localMap.get(id);
+                if (session == null) {
+                    return;
+                }
+                // Expired handlers would be lost with the passivated copy
+                if (now - session.lastAccessed() < passivationIdleTime || ExpiredHandlers.has(session)) {
+                    scheduleIdle(id, session);
+                } else {
+                    passivate(id, session);
+                }
+            });
+        }
+        ExpiredHandlers.fire(vertx, expired);
+        if (done) {
+            setTimer();
+        } else {
+            vertx.runOnContext(v -> handle(tid));
+        }
     }
 
-    private void notifyExpiredSessions(Runnable reaper) {
-        Set<String> before = localMap.keySet();
-        reaper.run();
-        before.removeAll(localMap.keySet());
-        before.forEach(this::onSessionExpired);
+    private void passivate(String id, Session session) {
+        int version = ((AbstractSession) session).version();
+        long lastAccessed = session.lastAccessed();
+        passivator.passivate(session, res -> {
+            if (res.failed()) {
+                logger.debug("Cannot passivate session {}", id, res.cause());
+            } else if (((AbstractSession) session).version() != version || session.lastAccessed() != lastAccessed
+                || !localMap.removeIfPresent(id, session)) {
+                // Used while it was being written, the file copy is stale
+                passivator.discard(id);
+            }
+        });
+    }
+
+    private void scheduleIdle(String id, Session session) {
+        idleDeadlines.schedule(id, session.lastAccessed() + passivationIdleTime);
+    }
+
+    private void setTimer() {
+        if (reaperInterval != 0) {
+            timerID = vertx.setTimer(reaperInterval, this);
+        }
     }
 
     protected void onSessionExpired(String sessionId) {
@@ -22,8 +22,16 @@
  */
 package com.github.mcollovati.vertx.web.sstore;
 
+import com.github.mcollovati.vertx.web.serialization.AttributeCodec;
+import com.github.mcollovati.vertx.web.serialization.SerializationSupport;
 import io.vertx.core.Vertx;
 
+/**
+ * A session store that keeps sessions in a node local map and replicates them through a clustered session store.
+ *
+ * Sessions are served from the local map and read from the cluster only when missing;
+ * nodes drop their local copy when the session is updated or deleted elsewhere.
+ */
 public interface NearCacheSessionStore extends ExtendedSessionStore {
     /**
      * The default name used for the session map
@@ -83,6 +91,56 @@ public interface NearCacheSessionStore extends ExtendedSessionStore {
         return new NearCacheSessionStoreImpl(vertx, sessionMapName, retryTimeout, reaperInterval);
     }
 
+    /**
+     * Create a session store that encodes session attributes with the given codec.
+     *
+     * The codec is used for session attributes written by this store.
+     *
+     * @param vertx          the Vert.x instance
+     * @param sessionMapName the session map name
+     * @param retryTimeout   the store retry timeout, in ms
+     * @param reaperInterval how often, in ms, to check for expired sessions
+     * @param codec          the session attribute codec
+     * @return the session store
+     */
+    static NearCacheSessionStore create(Vertx vertx, String sessionMapName, long retryTimeout, long reaperInterval, AttributeCodec codec) {
+        return create(vertx, sessionMapName, retryTimeout, reaperInterval, codec, -1);
+    }
+
+    /**
+     * Create a session store that encodes session attributes with the given codec,
+     * compressing encoded attributes larger than the given threshold.
+     *
+     * Codec and compression are used for session attributes written by this store.
+     *
+     * @param vertx                the Vert.x instance
+     * @param sessionMapName       the session map name
+     * @param retryTimeout         the store retry timeout, in ms
+     * @param reaperInterval       how often, in ms, to check for expired sessions
+     * @param codec                the session attribute codec
+     * @param compressionThreshold the size, in bytes, above which attributes are compressed, or a negative value to disable compression
+     * @return the session store
+     */
+    static NearCacheSessionStore create(Vertx vertx, String sessionMapName, long retryTimeout, long reaperInterval,
+                                        AttributeCodec codec, int compressionThreshold) {
+        return create(vertx, sessionMapName, retryTimeout, reaperInterval, SerializationSupport.create(codec, compressionThreshold));
+    }
+
+    /**
+     * Create a session store that encodes session attributes with the given serialization support.
+     *
+     * @param vertx          the Vert.x instance
+     * @param sessionMapName the session map name
+     * @param retryTimeout   the store retry timeout, in ms
+     * @param reaperInterval how often, in ms, to check for expired sessions
+     * @param serialization  the session attribute codec and compression settings
+     * @return the session store
+     */
+    static NearCacheSessionStore create(Vertx vertx, String sessionMapName, long retryTimeout, long reaperInterval,
+                                        SerializationSupport serialization) {
+        return new NearCacheSessionStoreImpl(vertx, sessionMapName, retryTimeout, reaperInterval, serialization);
+    }
+
     /**
      * Create a session store.
      *
@@ -122,4 +180,25 @@ public interface NearCacheSessionStore extends ExtendedSessionStore {
     static NearCacheSessionStore create(Vertx vertx, long retryTimeout, long reaperInterval) {
         return new NearCacheSessionStoreImpl(vertx, DEFAULT_SESSION_MAP_NAME, retryTimeout, reaperInterval);
     }
+
+    /**
+     * Gets the number of sessions served from the local map.
+     *
+     * @return the number of near cache hits
+     */
+    long hits();
+
+    /**
+     * Gets the number of sessions that had to be looked up in the clustered store.
+     *
+     * @return the number of near cache misses
+     */
+    long misses();
+
+    /**
+     * Gets the number of local sessions discarded because they were changed on another node.
+     *
+     * @return the number of near cache invalidations
+     */
+    long invalidations();
 }
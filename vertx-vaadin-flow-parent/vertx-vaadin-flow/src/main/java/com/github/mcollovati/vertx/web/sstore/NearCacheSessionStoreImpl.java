@@ -22,36 +22,90 @@
  */
 package com.github.mcollovati.vertx.web.sstore;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
+import com.github.mcollovati.vertx.web.AdjustableTimeoutSessionImpl;
+import com.github.mcollovati.vertx.web.ExtendedSessionImpl;
+import com.github.mcollovati.vertx.web.serialization.SerializationSupport;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.shareddata.LocalMap;
+import io.vertx.ext.auth.PRNG;
 import io.vertx.ext.web.Session;
+import io.vertx.ext.web.sstore.AbstractSession;
 import io.vertx.ext.web.sstore.ClusteredSessionStore;
 import io.vertx.ext.web.sstore.SessionStore;
 
+/**
+ * Session store that serves sessions from a node local map, backed by a clustered session store.
+ *
+ * Changes to a session are published on the event bus, so that other nodes can drop their
+ * stale copies; the clustered store is read only when a session is not in the local map,
+ * and a local copy is discarded when a put fails, for example because of a version conflict.
+ *
+ * Sessions created by this store track attributes that are put, removed or marked as changed:
+ * the published message carries only those attributes, which other nodes apply to a copy of their
+ * session when it is at the previous version, and a put that only touched the access time skips
+ * the clustered write until half of the session timeout has passed.
+ * Attributes are serialized once per put, for both the message and the clustered write.
+ */
 class NearCacheSessionStoreImpl implements NearCacheSessionStore, Handler<Long> {
 
+    private static final String INVALIDATION_ADDRESS_SUFFIX = ".invalidation";
+    private static final String NODE = "node";
+    private static final String ID = "id";
+    private static final String VERSION = "version";
+    private static final String CLEAR = "clear";
+    private static final String BASE_VERSION = "baseVersion";
+    private static final String DELTA = "delta";
+    private static final String TOUCH = "touch";
+    private static final int REAPER_BATCH_SIZE = 1000;
 
     private final Vertx vertx;
     private final long reaperInterval;
     private final LocalMap<String, Session> localMap;
     private final ClusteredSessionStore clusteredSessionStore;
+    private final PRNG random;
+    private final SerializationSupport serialization;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final String invalidationAddress;
+    private final MessageConsumer<JsonObject> invalidationConsumer;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final SegmentedExpirationIndex expirations = new SegmentedExpirationIndex();
+    // Time of the last clustered write made by this node, per session id
+    private final Map<String, Long> clusterWrites = new ConcurrentHashMap<>();
     private Handler<AsyncResult<String>> expirationHandler = x -> {};
-    private long timerID = -1;
-    private boolean closed;
+    private volatile long timerID = -1;
+    private volatile boolean closed;
 
     public NearCacheSessionStoreImpl(Vertx vertx, String sessionMapName, long retryTimeout, long reaperInterval) {
+        this(vertx, sessionMapName, retryTimeout, reaperInterval, SerializationSupport.DEFAULT);
+    }
+
+    public NearCacheSessionStoreImpl(Vertx vertx, String sessionMapName, long retryTimeout, long reaperInterval,
+                                     SerializationSupport serialization) {
         this.vertx = vertx;
+        this.serialization = Objects.requireNonNull(serialization);
         this.reaperInterval = reaperInterval;
         this.clusteredSessionStore = ClusteredSessionStore.create(vertx, sessionMapName, retryTimeout);
         this.localMap = vertx.sharedData().getLocalMap(sessionMapName);
+        this.random = new PRNG(vertx);
+        this.invalidationAddress = sessionMapName + INVALIDATION_ADDRESS_SUFFIX;
+        this.invalidationConsumer = vertx.eventBus().consumer(invalidationAddress, this::onInvalidation);
         this.setTimer();
     }
 
@@ -73,40 +127,36 @@ class NearCacheSessionStoreImpl implements NearCacheSessionStore, Handler<Long>
 
     @Override
     public Session createSession(long timeout) {
-        return clusteredSessionStore.createSession(timeout);
+        return createSession(timeout, SessionStore.DEFAULT_SESSIONID_LENGTH);
     }
 
     @Override
     public Session createSession(long timeout, int length) {
-        return clusteredSessionStore.createSession(timeout, length);
+        return new ExtendedSessionImpl(new AdjustableTimeoutSessionImpl(random, timeout, length), serialization);
     }
 
     @Override
     public void get(String id, Handler<AsyncResult<Session>> resultHandler) {
+        Session localSession = localMap.get(id);
+        if (localSession != null) {
+            hits.increment();
+            resultHandler.handle(Future.succeededFuture(localSession));
+            return;
+        }
+        misses.increment();
         clusteredSessionStore.get(id, res -> {
             if (res.succeeded()) {
-                Session localSession = localMap.get(id);
-                if (localSession == null && res.result() != null) {
-                    localMap.put(id, res.result());
+                if (res.result() instanceof ExtendedSessionImpl) {
+                    ((ExtendedSessionImpl) res.result()).serialization(serialization);
+                }
+                if (res.result() != null && localMap.putIfAbsent(id, res.result()) == null) {
+                    schedule(res.result());
                 }
                 resultHandler.handle(Future.succeededFuture(localMap.get(id)));
             } else {
                 resultHandler.handle(Future.failedFuture(res.cause()));
             }
         });
-        /*
-        if (localMap.containsKey(id)) {
-            resultHandler.handle(Future.succeededFuture(localMap.get(id)));
-        } else {
-            clusteredSessionStore.get(id, res -> {
-                if (res.succeeded()) {
-                    Optional.ofNullable(res.result()).ifPresent(s -> localMap.put(id, s));
-                    resultHandler.handle(Future.succeededFuture(res.result()));
-                } else {
-                    resultHandler.handle(Future.failedFuture(res.cause()));
-                }
-            });
-        }*/
     }
 
     @Override
@@ -114,6 +164,9 @@ class NearCacheSessionStoreImpl implements NearCacheSessionStore, Handler<Long>
         clusteredSessionStore.delete(id, res -> {
             if (res.succeeded()) {
                 localMap.remove(id);
+                expirations.remove(id);
+                clusterWrites.remove(id);
+                publishInvalidation(new JsonObject().put(ID, id));
                 resultHandler.handle(Future.succeededFuture());
             } else {
                 resultHandler.handle(Future.failedFuture(res.cause()));
@@ -124,11 +177,33 @@ class NearCacheSessionStoreImpl implements NearCacheSessionStore, Handler<Long>
 
     @Override
     public void put(Session session, Handler<AsyncResult<Void>> resultHandler) {
-        clusteredSessionStore.put(session, res -> {
+        if (isTouchOnly(session)) {
             localMap.put(session.id(), session);
+            schedule(session);
+            publishInvalidation(new JsonObject().put(ID, session.id()).put(VERSION, version(session)).put(TOUCH, true));
+            resultHandler.handle(Future.succeededFuture());
+            return;
+        }
+        JsonObject message = new JsonObject().put(ID, session.id());
+        if (session instanceof ExtendedSessionImpl) {
+            // Taken before the clustered write, so that the stored snapshot contains at least these changes
+            Buffer delta = Buffer.buffer();
+            ((ExtendedSessionImpl) session).writeDeltaToBuffer(delta);
+            message.put(BASE_VERSION, version(session)).put(DELTA, delta.getBytes());
+        }
+        clusteredSessionStore.put(session, res -> {
+            if (session instanceof ExtendedSessionImpl) {
+                ((ExtendedSessionImpl) session).dropEncodedAttributes();
+            }
             if (res.succeeded()) {
+                clusterWrites.put(session.id(), System.currentTimeMillis());
+                localMap.put(session.id(), session);
+                schedule(session);
+                publishInvalidation(message.put(VERSION, version(session)));
                 resultHandler.handle(Future.succeededFuture());
             } else {
+                // Local copy may be stale, next get will load the session from the cluster
+                localMap.remove(session.id());
                 resultHandler.handle(Future.failedFuture(res.cause()));
             }
         });
@@ -139,6 +214,9 @@ class NearCacheSessionStoreImpl implements NearCacheSessionStore, Handler<Long>
         clusteredSessionStore.clear(res -> {
             if (res.succeeded()) {
                 localMap.clear();
+                expirations.clear();
+                clusterWrites.clear();
+                publishInvalidation(new JsonObject().put(CLEAR, true));
                 resultHandler.handle(Future.succeededFuture());
             } else {
                 resultHandler.handle(Future.failedFuture(res.cause()));
@@ -152,32 +230,128 @@ class NearCacheSessionStoreImpl implements NearCacheSessionStore, Handler<Long>
     }
 
     @Override
-    public synchronized void close() {
+    public long hits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long misses() {
+        return misses.sum();
+    }
+
+    @Override
+    public long invalidations() {
+        return invalidations.sum();
+    }
+
+    private boolean isTouchOnly(Session session) {
+        if (!(session instanceof ExtendedSessionImpl) || ((ExtendedSessionImpl) session).isDirty() || session.isRegenerated()) {
+            return false;
+        }
+        Long lastWrite = clusterWrites.get(session.id());
+        return lastWrite != null && System.currentTimeMillis() - lastWrite < session.timeout() / 2;
+    }
+
+    private void publishInvalidation(JsonObject message) {
+        vertx.eventBus().publish(invalidationAddress, message.put(NODE, nodeId));
+    }
+
+    private void onInvalidation(Message<JsonObject> message) {
+        JsonObject body = message.body();
+        if (nodeId.equals(body.getString(NODE))) {
+            return;
+        }
+        if (body.getBoolean(CLEAR, false)) {
+            localMap.clear();
+            expirations.clear();
+            clusterWrites.clear();
+            invalidations.increment();
+            return;
+        }
+        String id = body.getString(ID);
+        Session localSession = localMap.get(id);
+        if (localSession == null) {
+            return;
+        }
+        if (body.getBoolean(TOUCH, false) && version(localSession) == body.getInteger(VERSION)) {
+            localSession.setAccessed();
+            schedule(localSession);
+            return;
+        }
+        if (body.containsKey(DELTA) && localSession instanceof ExtendedSessionImpl
+            && version(localSession) == body.getInteger(BASE_VERSION)) {
+            // The local instance may be in use by a request, so the delta is applied to a copy;
+            // a put of the old instance then fails on version mismatch instead of overwriting remote changes
+            ExtendedSessionImpl updated = ((ExtendedSessionImpl) localSession).copy();
+            updated.readDeltaFromBuffer(0, Buffer.buffer(body.getBinary(DELTA)));
+            updated.incrementVersion();
+            updated.setAccessed();
+            if (localMap.replaceIfPresent(id, localSession, updated)) {
+                schedule(updated);
+            }
+            return;
+        }
+        // Sessions put by stores on the same node share the local map and are already up to date
+        if (!body.containsKey(VERSION) || version(localSession) < body.getInteger(VERSION)) {
+            localMap.removeIfPresent(id, localSession);
+            expirations.remove(id);
+            clusterWrites.remove(id);
+            invalidations.increment();
+        }
+    }
+
+    private static int version(Session session) {
+        if (session instanceof AbstractSession) {
+            return ((AbstractSession) session).version();
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        invalidationConsumer.unregister();
         clusteredSessionStore.close();
         localMap.close();
         if (timerID != -1) {
             vertx.cancelTimer(timerID);
         }
-        closed = true;
+        random.close();
     }
 
     @Override
-    public synchronized void handle(Long tid) {
+    public void handle(Long tid) {
+        if (closed) {
+            return;
+        }
         long now = System.currentTimeMillis();
-        Set<String> toRemove = new HashSet<>();
-        for (Session session : localMap.values()) {
+        List<ExtendedSessionImpl> expired = new ArrayList<>();
+        boolean done = expirations.pollDue(now, REAPER_BATCH_SIZE, id -> {
+            Session session = localMap.get(id);
+            if (session == null) {
+                return;
+            }
             if (now - session.lastAccessed() > session.timeout()) {
-                toRemove.add(session.id());
+                ExpiredHandlers.collect(session, expired);
+                delete(id, res -> expirationHandler.handle(res.map(x -> id)));
+            } else {
+                // Accessed after it was stored
+                schedule(session);
             }
-        }
-        for (String id : toRemove) {
-            delete(id, res -> expirationHandler.handle(res.map(x -> id)));
-        }
-        if (!closed) {
+        });
+        ExpiredHandlers.fire(vertx, expired);
+        // More due sessions are reaped on the next event loop turn, without waiting for the reaper interval
+        if (done) {
             setTimer();
+        } else {
+            vertx.runOnContext(v -> handle(tid));
         }
     }
 
+    private void schedule(Session session) {
+        expirations.schedule(session.id(), ExpirationIndex.deadline(session));
+    }
+
     private void setTimer() {
         if (reaperInterval != 0) {
             timerID = vertx.setTimer(reaperInterval, this);
@@ -0,0 +1,122 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.web.sstore;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * An {@link ExpirationIndex} split into independent segments by session id.
+ *
+ * Each segment has its own deadline index and its own reaper lock, so updates to sessions in
+ * different segments do not touch the same structures, and reaper passes from different threads
+ * work on different segments instead of waiting for each other.
+ * Polling is bounded: a pass stops after a given number of sessions and the next one resumes
+ * from the segment where it stopped, so large expiration waves are spread over several passes.
+ */
+final class SegmentedExpirationIndex {
+
+    static final int DEFAULT_SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final AtomicInteger nextSegment = new AtomicInteger();
+
+    SegmentedExpirationIndex() {
+        this(DEFAULT_SEGMENTS);
+    }
+
+    SegmentedExpirationIndex(int segmentCount) {
+        if (segmentCount < 1) {
+            throw new IllegalArgumentException("At least one segment is required: " + segmentCount);
+        }
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    void schedule(String id, long expiresAt) {
+        segment(id).index.schedule(id, expiresAt);
+    }
+
+    void remove(String id) {
+        segment(id).index.remove(id);
+    }
+
+    void clear() {
+        for (Segment segment : segments) {
+            segment.index.clear();
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.index.size();
+        }
+        return size;
+    }
+
+    /**
+     * Removes from the index at most {@code limit} sessions whose deadline is before the given time
+     * and passes their ids to the consumer, visiting segments in turn starting from the one where
+     * the previous call stopped. Segments being polled by another thread are skipped.
+     *
+     * @param now      the current time, in ms
+     * @param limit    the maximum number of sessions to remove
+     * @param consumer the consumer of due session ids
+     * @return true if the limit was not reached, meaning that no due session is left in the visited segments
+     */
+    boolean pollDue(long now, int limit, Consumer<String> consumer) {
+        int remaining = limit;
+        int start = nextSegment.get();
+        for (int i = 0; i < segments.length; i++) {
+            int current = (start + i) % segments.length;
+            Segment segment = segments[current];
+            if (!segment.lock.tryLock()) {
+                continue;
+            }
+            try {
+                remaining -= segment.index.pollDue(now, remaining, consumer);
+            } finally {
+                segment.lock.unlock();
+            }
+            if (remaining <= 0) {
+                // This segment may still have due sessions
+                nextSegment.set(current);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Segment segment(String id) {
+        return segments[(id.hashCode() & Integer.MAX_VALUE) % segments.length];
+    }
+
+    private static final class Segment {
+        private final ExpirationIndex index = new ExpirationIndex();
+        private final ReentrantLock lock = new ReentrantLock();
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.web.sstore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.mcollovati.vertx.web.AdjustableTimeoutSessionImpl;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxException;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.shareddata.impl.ClusterSerializable;
+import io.vertx.ext.auth.PRNG;
+import io.vertx.ext.web.Session;
+
+/**
+ * Keeps idle sessions in an append only local file.
+ *
+ * The position of each passivated session is kept in memory; discarding a session only drops
+ * its position, and the file is compacted when most of it is made of discarded sessions.
+ * File operations run on a dedicated single threaded worker, so they never block the event loop
+ * and never run concurrently.
+ *
+ * Stores sharing a local map must also share its passivated sessions, so there is a single instance
+ * per file, obtained with {@link #acquire(Vertx, Path)}; the file is deleted when the last store
+ * using it releases it.
+ */
+final class SessionPassivator {
+
+    private static final long MIN_COMPACTION_SIZE = 1024 * 1024;
+
+    private static final Map<Path, SessionPassivator> INSTANCES = new HashMap<>();
+
+    private final Vertx vertx;
+    private final Path path;
+    private final PRNG random;
+    private final WorkerExecutor executor;
+    private final Map<String, Record> records = new ConcurrentHashMap<>();
+    private final AtomicLong liveBytes = new AtomicLong();
+    private FileChannel channel;
+    private int references;
+
+    private SessionPassivator(Vertx vertx, Path path) {
+        this.vertx = vertx;
+        this.path = path;
+        this.random = new PRNG(vertx);
+        this.executor = vertx.createSharedWorkerExecutor("vaadin-session-passivation-" + path.getFileName(), 1);
+        try {
+            Files.createDirectories(path.getParent());
+            this.channel = open(path);
+        } catch (IOException ex) {
+            throw new VertxException("Cannot create session passivation file " + path, ex);
+        }
+    }
+
+    /**
+     * Gets the passivator for the given file, creating it if no store is using it.
+     *
+     * Each call must be paired with a {@link #release()}.
+     */
+    static SessionPassivator acquire(Vertx vertx, Path path) {
+        Path file = path.toAbsolutePath().normalize();
+        synchronized (INSTANCES) {
+            SessionPassivator passivator = INSTANCES.get(file);
+            if (passivator == null) {
+                passivator = new SessionPassivator(vertx, file);
+                INSTANCES.put(file, passivator);
+            } else if (passivator.vertx != vertx) {
+                throw new IllegalStateException("Session passivation file " + file + " is already used by another Vert.x instance");
+            }
+            passivator.references++;
+            return passivator;
+        }
+    }
+
+    /**
+     * Releases a passivator obtained by {@link #acquire(Vertx, Path)}, closing it if no other store is using it.
+     */
+    void release() {
+        synchronized (INSTANCES) {
+            if (--references > 0) {
+                return;
+            }
+            INSTANCES.remove(path);
+        }
+        close();
+    }
+
+    boolean contains(String id) {
+        return records.containsKey(id);
+    }
+
+    int size() {
+        return records.size();
+    }
+
+    /**
+     * Drops the passivated copy of a session.
+     *
+     * @return true if the session was passivated
+     */
+    boolean discard(String id) {
+        Record record = records.remove(id);
+        if (record != null) {
+            liveBytes.addAndGet(-record.length);
+            return true;
+        }
+        return false;
+    }
+
+    void passivate(Session session, Handler<AsyncResult<Void>> resultHandler) {
+        executor.<Void>executeBlocking(promise -> {
+            Buffer buffer = Buffer.buffer();
+            ((ClusterSerializable) session).writeToBuffer(buffer);
+            write(session.id(), buffer);
+            promise.complete();
+        }, true, resultHandler);
+    }
+
+    /**
+     * Reads and discards the passivated copy of a session; the result is null if the session is not passivated.
+     */
+    void activate(String id, Handler<AsyncResult<Session>> resultHandler) {
+        executor.<Session>executeBlocking(promise -> {
+            Record record = records.get(id);
+            if (record == null || !discard(id)) {
+                promise.complete();
+                return;
+            }
+            AdjustableTimeoutSessionImpl session = new AdjustableTimeoutSessionImpl(random);
+            session.readFromBuffer(0, read(record));
+            promise.complete(session);
+        }, true, resultHandler);
+    }
+
+    /**
+     * Reads all passivated sessions, without discarding them.
+     */
+    void export(Handler<AsyncResult<List<Buffer>>> resultHandler) {
+        executor.<List<Buffer>>executeBlocking(promise -> {
+            List<Buffer> sessions = new ArrayList<>(records.size());
+            records.values().forEach(record -> sessions.add(read(record)));
+            promise.complete(sessions);
+        }, true, resultHandler);
+    }
+
+    void clear() {
+        records.clear();
+        liveBytes.set(0);
+        executor.<Void>executeBlocking(promise -> {
+            truncate();
+            promise.complete();
+        }, true, res -> {});
+    }
+
+    private void close() {
+        records.clear();
+        executor.<Void>executeBlocking(promise -> {
+            try {
+                channel.close();
+                Files.deleteIfExists(path);
+            } catch (IOException ex) {
+                throw new VertxException(ex);
+            }
+            promise.complete();
+        }, true, res -> {
+            executor.close();
+            random.close();
+        });
+    }
+
+    private synchronized void write(String id, Buffer buffer) {
+        try {
+            long position = channel.size();
+            ByteBuffer data = buffer.getByteBuf().nioBuffer();
+            while (data.hasRemaining()) {
+                channel.write(data, position + buffer.length() - data.remaining());
+            }
+            Record previous = records.put(id, new Record(position, buffer.length()));
+            liveBytes.addAndGet(buffer.length() - (previous != null ? previous.length : 0));
+            if (channel.size() > MIN_COMPACTION_SIZE && channel.size() > 2 * liveBytes.get()) {
+                compact();
+            }
+        } catch (IOException ex) {
+            records.remove(id);
+            throw new VertxException("Cannot passivate session", ex);
+        }
+    }
+
+    private synchronized Buffer read(Record record) {
+        ByteBuffer data = ByteBuffer.allocate(record.length);
+        try {
+            while (data.hasRemaining()) {
+                if (channel.read(data, record.position + data.position()) < 0) {
+                    throw new IOException("Unexpected end of session passivation file");
+                }
+            }
+        } catch (IOException ex) {
+            throw new VertxException("Cannot activate session", ex);
+        }
+        return Buffer.buffer(data.array());
+    }
+
+    private void truncate() {
+        try {
+            if (records.isEmpty()) {
+                channel.truncate(0);
+            }
+        } catch (IOException ex) {
+            throw new VertxException(ex);
+        }
+    }
+
+    private void compact() throws IOException {
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        Map<String, Record> live = new HashMap<>(records);
+        Map<String, Record> moved = new HashMap<>();
+        try (FileChannel target = open(compacted)) {
+            for (Map.Entry<String, Record> entry : live.entrySet()) {
+                Record record = entry.getValue();
+                long position = target.size();
+                long transferred = 0;
+                while (transferred < record.length) {
+                    transferred += channel.transferTo(record.position + transferred, record.length - transferred, target);
+                }
+                moved.put(entry.getKey(), new Record(position, record.length));
+            }
+        }
+        channel.close();
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Sessions discarded meanwhile are not restored
+        moved.forEach((id, relocated) -> records.replace(id, live.get(id), relocated));
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static final class Record {
+        private final long position;
+        private final int length;
+
+        private Record(long position, int length) {
+            this.position = position;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.web.sstore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.mcollovati.vertx.web.AdjustableTimeoutSessionImpl;
+import io.vertx.core.VertxException;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.shareddata.impl.ClusterSerializable;
+import io.vertx.ext.auth.PRNG;
+import io.vertx.ext.web.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads and writes session snapshot files.
+ *
+ * A snapshot starts with a magic number and a format version, followed by the number of sessions
+ * and by each session, prefixed by its length, in the cluster serialization format.
+ */
+final class SessionSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionSnapshot.class);
+
+    private static final int MAGIC = 0x56565353;
+    static final int FORMAT_VERSION = 1;
+
+    private SessionSnapshot() {
+    }
+
+    /**
+     * Encodes a session, or returns null if it contains attributes that cannot be serialized.
+     */
+    static Buffer encode(Session session) {
+        try {
+            Buffer buffer = Buffer.buffer();
+            ((ClusterSerializable) session).writeToBuffer(buffer);
+            return buffer;
+        } catch (RuntimeException ex) {
+            logger.warn("Cannot snapshot session {}", session.id(), ex);
+            return null;
+        }
+    }
+
+    static Session decode(Buffer buffer, PRNG random) {
+        AdjustableTimeoutSessionImpl session = new AdjustableTimeoutSessionImpl(random);
+        session.readFromBuffer(0, buffer);
+        return session;
+    }
+
+    static void write(Path file, List<Buffer> sessions) {
+        Buffer snapshot = Buffer.buffer().appendInt(MAGIC).appendInt(FORMAT_VERSION).appendInt(sessions.size());
+        sessions.forEach(session -> snapshot.appendInt(session.length()).appendBuffer(session));
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            // Written aside and moved, so that a crash never leaves a truncated snapshot
+            Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            Files.write(temp, snapshot.getBytes());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new VertxException("Cannot write session snapshot " + file, ex);
+        }
+    }
+
+    static List<Buffer> read(Path file) {
+        Buffer snapshot;
+        try {
+            snapshot = Buffer.buffer(Files.readAllBytes(file));
+        } catch (IOException ex) {
+            throw new VertxException("Cannot read session snapshot " + file, ex);
+        }
+        if (snapshot.length() < 12 || snapshot.getInt(0) != MAGIC) {
+            throw new VertxException("Not a session snapshot: " + file);
+        }
+        int version = snapshot.getInt(4);
+        if (version != FORMAT_VERSION) {
+            throw new VertxException("Unsupported session snapshot version " + version + ": " + file);
+        }
+        int count = snapshot.getInt(8);
+        List<Buffer> sessions = new ArrayList<>(count);
+        int pos = 12;
+        for (int i = 0; i < count; i++) {
+            int length = snapshot.getInt(pos);
+            pos += 4;
+            sessions.add(snapshot.slice(pos, pos + length));
+            pos += length;
+        }
+        return sessions;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.web.sstore;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+
+/**
+ * A session store that delays writes to another store, coalescing them per session id.
+ *
+ * A put completes immediately and only the latest state of each session is written
+ * to the delegate store when the pending writes are flushed, at a fixed interval.
+ * Deletes and regenerated sessions bypass the queue, and closing the store writes it out.
+ * Writes that fail are queued again for the next flush.
+ * Sessions waiting to be written are served by {@link #get} from the queue.
+ */
+public interface WriteBehindSessionStore extends ExtendedSessionStore {
+
+    /**
+     * Default interval, in ms, between flushes of pending writes.
+     */
+    long DEFAULT_FLUSH_INTERVAL = 100;
+
+    /**
+     * Create a write behind session store.
+     *
+     * @param vertx    the Vert.x instance
+     * @param delegate the store sessions are written to
+     * @return the session store
+     */
+    static WriteBehindSessionStore create(Vertx vertx, ExtendedSessionStore delegate) {
+        return new WriteBehindSessionStoreImpl(vertx, delegate, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Create a write behind session store.
+     *
+     * @param vertx         the Vert.x instance
+     * @param delegate      the store sessions are written to
+     * @param flushInterval how often, in ms, pending writes are flushed
+     * @return the session store
+     */
+    static WriteBehindSessionStore create(Vertx vertx, ExtendedSessionStore delegate, long flushInterval) {
+        return new WriteBehindSessionStoreImpl(vertx, delegate, flushInterval);
+    }
+
+    /**
+     * Writes all pending sessions to the delegate store.
+     *
+     * @param resultHandler will be called once all pending sessions have been written
+     */
+    void flush(Handler<AsyncResult<Void>> resultHandler);
+
+    /**
+     * Stops periodic flushes, writes all pending sessions and then closes the delegate store.
+     *
+     * @param completionHandler will be called once pending sessions have been written and the delegate store closed
+     */
+    void close(Handler<AsyncResult<Void>> completionHandler);
+
+    /**
+     * Gets the number of sessions waiting to be written.
+     *
+     * @return the write queue depth
+     */
+    int pendingWrites();
+
+    /**
+     * Gets the number of writes replaced by a later write of the same session before being flushed.
+     *
+     * @return the number of coalesced writes
+     */
+    long coalescedWrites();
+
+    /**
+     * Gets the number of flushes performed.
+     *
+     * @return the number of flushes
+     */
+    long flushes();
+
+    /**
+     * Gets how long, in ms, the last flush took to write all its sessions.
+     *
+     * @return the last flush latency
+     */
+    long lastFlushLatency();
+}
@@ -0,0 +1,264 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.web.sstore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.sstore.SessionStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write behind session store.
+ *
+ * Pending sessions are kept by id, so that repeated puts of the same session between two flushes
+ * result in a single write. While a session is being written, deletes and forced writes for the
+ * same id wait for the write to complete, so that a late write cannot resurrect a deleted session.
+ */
+class WriteBehindSessionStoreImpl implements WriteBehindSessionStore, Handler<Long> {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindSessionStoreImpl.class);
+
+    private final Vertx vertx;
+    private final ExtendedSessionStore delegate;
+    private final long flushInterval;
+    private final Map<String, Session> pending = new ConcurrentHashMap<>();
+    private final Map<String, List<Handler<Void>>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalescedWrites = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final AtomicLong lastFlushLatency = new AtomicLong();
+    private long timerID = -1;
+    private boolean closed;
+
+    WriteBehindSessionStoreImpl(Vertx vertx, ExtendedSessionStore delegate, long flushInterval) {
+        this.vertx = vertx;
+        this.delegate = delegate;
+        this.flushInterval = flushInterval;
+        setTimer();
+    }
+
+    @Override
+    public SessionStore init(Vertx vertx, JsonObject options) {
+        return this;
+    }
+
+    @Override
+    public ExtendedSessionStore expirationHandler(Handler<AsyncResult<String>> handler) {
+        delegate.expirationHandler(res -> {
+            if (res.succeeded()) {
+                pending.remove(res.result());
+            }
+            handler.handle(res);
+        });
+        return this;
+    }
+
+    @Override
+    public long retryTimeout() {
+        return delegate.retryTimeout();
+    }
+
+    @Override
+    public Session createSession(long timeout) {
+        return delegate.createSession(timeout);
+    }
+
+    @Override
+    public Session createSession(long timeout, int length) {
+        return delegate.createSession(timeout, length);
+    }
+
+    @Override
+    public void get(String cookieValue, Handler<AsyncResult<Session>> resultHandler) {
+        Session session = pending.get(cookieValue);
+        if (session != null) {
+            resultHandler.handle(Future.succeededFuture(session));
+        } else {
+            delegate.get(cookieValue, resultHandler);
+        }
+    }
+
+    @Override
+    public void delete(String id, Handler<AsyncResult<Void>> resultHandler) {
+        pending.remove(id);
+        afterWrite(id, x -> {
+            // A failed write completing before the delete may have queued the session again
+            pending.remove(id);
+            delegate.delete(id, resultHandler);
+        });
+    }
+
+    @Override
+    public void put(Session session, Handler<AsyncResult<Void>> resultHandler) {
+        if (session.isRegenerated()) {
+            // The new id must be in the store before the client receives it
+            pending.remove(session.id());
+            afterWrite(session.id(), x -> delegate.put(session, resultHandler));
+            return;
+        }
+        if (pending.put(session.id(), session) != null) {
+            coalescedWrites.increment();
+        }
+        resultHandler.handle(Future.succeededFuture());
+    }
+
+    @Override
+    public void clear(Handler<AsyncResult<Void>> resultHandler) {
+        pending.clear();
+        delegate.clear(resultHandler);
+    }
+
+    @Override
+    public void size(Handler<AsyncResult<Integer>> resultHandler) {
+        delegate.size(resultHandler);
+    }
+
+    @Override
+    public void close() {
+        close(res -> {
+            if (res.failed()) {
+                logger.error("Cannot write pending sessions", res.cause());
+            }
+        });
+    }
+
+    @Override
+    public void close(Handler<AsyncResult<Void>> completionHandler) {
+        synchronized (this) {
+            closed = true;
+            if (timerID != -1) {
+                vertx.cancelTimer(timerID);
+            }
+        }
+        flush(res -> {
+            delegate.close();
+            completionHandler.handle(res);
+        });
+    }
+
+    @Override
+    public void flush(Handler<AsyncResult<Void>> resultHandler) {
+        Map<String, Session> batch = new HashMap<>(pending);
+        // Sessions put again after the copy stay pending for the next flush
+        batch.entrySet().removeIf(entry -> !pending.remove(entry.getKey(), entry.getValue()));
+        if (batch.isEmpty()) {
+            resultHandler.handle(Future.succeededFuture());
+            return;
+        }
+        long start = System.currentTimeMillis();
+        AtomicInteger remaining = new AtomicInteger(batch.size());
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        batch.values().forEach(session -> write(session, res -> {
+            if (res.failed()) {
+                logger.error("Cannot write session {}", session.id(), res.cause());
+                failures.add(res.cause());
+                // The put already succeeded for the caller, so the write is retried by the next flush
+                pending.putIfAbsent(session.id(), session);
+            }
+            if (remaining.decrementAndGet() == 0) {
+                lastFlushLatency.set(System.currentTimeMillis() - start);
+                flushes.increment();
+                resultHandler.handle(failures.isEmpty() ? Future.succeededFuture() : Future.failedFuture(failures.get(0)));
+            }
+        }));
+    }
+
+    @Override
+    public int pendingWrites() {
+        return pending.size();
+    }
+
+    @Override
+    public long coalescedWrites() {
+        return coalescedWrites.sum();
+    }
+
+    @Override
+    public long flushes() {
+        return flushes.sum();
+    }
+
+    @Override
+    public long lastFlushLatency() {
+        return lastFlushLatency.get();
+    }
+
+    @Override
+    public synchronized void handle(Long tid) {
+        if (closed) {
+            return;
+        }
+        // The next flush is scheduled when this one completes, so a slow delegate does not pile up writes
+        flush(res -> {
+            synchronized (this) {
+                if (!closed) {
+                    setTimer();
+                }
+            }
+        });
+    }
+
+    private void write(Session session, Handler<AsyncResult<Void>> resultHandler) {
+        String id = session.id();
+        inFlight.put(id, new ArrayList<>());
+        delegate.put(session, res -> {
+            List<Handler<Void>> waiters = inFlight.remove(id);
+            resultHandler.handle(res);
+            if (waiters != null) {
+                waiters.forEach(waiter -> waiter.handle(null));
+            }
+        });
+    }
+
+    private void afterWrite(String id, Handler<Void> action) {
+        boolean[] waiting = {false};
+        inFlight.computeIfPresent(id, (key, waiters) -> {
+            waiters.add(action);
+            waiting[0] = true;
+            return waiters;
+        });
+        if (!waiting[0]) {
+            action.handle(null);
+        }
+    }
+
+    private void setTimer() {
+        if (flushInterval > 0) {
+            timerID = vertx.setTimer(flushInterval, this);
+        }
+    }
+}
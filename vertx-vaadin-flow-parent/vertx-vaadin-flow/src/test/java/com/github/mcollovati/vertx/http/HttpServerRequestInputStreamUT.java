@@ -0,0 +1,123 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class HttpServerRequestInputStreamUT {
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    @Mock
+    private HttpServerRequest request;
+    @Mock
+    private Context context;
+    @Captor
+    private ArgumentCaptor<Handler<Buffer>> dataHandler;
+    @Captor
+    private ArgumentCaptor<Handler<Void>> endHandler;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        doAnswer(i -> {
+            ((Handler<Void>) i.getArguments()[0]).handle(null);
+            return null;
+        }).when(context).runOnContext(any());
+    }
+
+    private InputStream createStream(long bodyLimit, long maxQueuedBytes) {
+        InputStream stream = new HttpServerRequestInputStream(context, request, bodyLimit, maxQueuedBytes);
+        verify(request).handler(dataHandler.capture());
+        verify(request).endHandler(endHandler.capture());
+        return stream;
+    }
+
+    @Test
+    public void shouldReadChunksUntilRequestEnds() throws IOException {
+        InputStream stream = createStream(-1, 1024);
+        dataHandler.getValue().handle(Buffer.buffer("Hello "));
+        dataHandler.getValue().handle(Buffer.buffer("World"));
+        endHandler.getValue().handle(null);
+
+        assertThat(readAll(stream)).isEqualTo("Hello World");
+        assertThat(stream.read()).isEqualTo(-1);
+    }
+
+    @Test
+    public void shouldPauseRequestWhenTooManyBytesAreQueued() throws IOException {
+        InputStream stream = createStream(-1, 8);
+        dataHandler.getValue().handle(Buffer.buffer("12345"));
+        verify(request, never()).pause();
+        dataHandler.getValue().handle(Buffer.buffer("67890"));
+        verify(request).pause();
+
+        byte[] data = new byte[5];
+        assertThat(stream.read(data)).isEqualTo(5);
+        assertThat(stream.read(data)).isEqualTo(5);
+        verify(request).resume();
+    }
+
+    @Test
+    public void shouldFailWhenBodyLimitIsExceeded() {
+        InputStream stream = createStream(4, 1024);
+        dataHandler.getValue().handle(Buffer.buffer("12345"));
+
+        assertThatThrownBy(() -> readAll(stream)).isInstanceOf(IOException.class);
+        verify(request).pause();
+    }
+
+    private static String readAll(InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[3];
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), UTF_8);
+    }
+}
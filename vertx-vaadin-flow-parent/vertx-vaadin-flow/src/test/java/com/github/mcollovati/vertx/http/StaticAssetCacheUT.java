@@ -0,0 +1,109 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.http;
+
+import java.util.Arrays;
+
+import com.github.mcollovati.vertx.support.StaticResourceIndex;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(VertxUnitRunner.class)
+public class StaticAssetCacheUT {
+
+    private static final String BUNDLE = "static-assets/bundle-0123456789abcdef.cache.js";
+    private static final String SMALL = "static-assets/small.txt";
+
+    private Vertx vertx;
+    private StaticResourceIndex index;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+        index = StaticResourceIndex.of(Arrays.asList(BUNDLE, SMALL));
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test(timeout = 5000L)
+    public void shouldCacheAssetWithGzipVariantAndETag(TestContext context) {
+        StaticAssetCache cache = new StaticAssetCache(vertx, index, 1024 * 1024);
+        Async async = context.async();
+        cache.get(BUNDLE, context.asyncAssertSuccess(asset -> {
+            context.assertNotNull(asset);
+            context.assertTrue(asset.immutable());
+            context.assertNotNull(asset.encoded(StaticAssetCache.GZIP));
+            context.assertTrue(asset.encoded(StaticAssetCache.GZIP).length() < asset.content().length());
+            context.assertNull(asset.encoded(StaticAssetCache.BROTLI));
+            context.assertTrue(asset.etag().startsWith("\""));
+            context.assertEquals(asset.etag(), asset.etag("identity"));
+            context.assertNotEquals(asset.etag(), asset.etag(StaticAssetCache.GZIP));
+            context.assertNotEquals(asset.etag(StaticAssetCache.GZIP), asset.etag(StaticAssetCache.BROTLI));
+            context.assertTrue(asset.etag(StaticAssetCache.GZIP).endsWith("-gz\""));
+            cache.get(BUNDLE, context.asyncAssertSuccess(cached -> {
+                context.assertTrue(asset == cached);
+                async.complete();
+            }));
+        }));
+    }
+
+    @Test(timeout = 5000L)
+    public void shouldNotCompressSmallAssets(TestContext context) {
+        StaticAssetCache cache = new StaticAssetCache(vertx, index, 1024 * 1024);
+        cache.get(SMALL, context.asyncAssertSuccess(asset -> {
+            context.assertFalse(asset.immutable());
+            context.assertFalse(asset.hasEncodedVariants());
+        }));
+    }
+
+    @Test(timeout = 5000L)
+    public void shouldNotCacheAssetsLargerThanAQuarterOfBudget(TestContext context) {
+        StaticAssetCache cache = new StaticAssetCache(vertx, index, 1024);
+        cache.get(BUNDLE, context.asyncAssertSuccess(context::assertNull));
+    }
+
+    @Test(timeout = 5000L)
+    public void shouldEvictLeastRecentlyUsedAssetsWhenBudgetIsExceeded(TestContext context) {
+        Async async = context.async();
+        new StaticAssetCache(vertx, index, 1024 * 1024).get(BUNDLE, context.asyncAssertSuccess(measured -> {
+            long budget = measured.size() + 6;
+            StaticAssetCache cache = new StaticAssetCache(vertx, index, budget, budget);
+            cache.get(BUNDLE, context.asyncAssertSuccess(bundle -> {
+                context.assertEquals(bundle.size(), cache.size());
+                cache.get(SMALL, context.asyncAssertSuccess(small -> {
+                    context.assertEquals(small.size(), cache.size());
+                    async.complete();
+                }));
+            }));
+        }));
+    }
+}
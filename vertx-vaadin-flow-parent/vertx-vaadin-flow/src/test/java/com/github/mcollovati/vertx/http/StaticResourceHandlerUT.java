@@ -0,0 +1,111 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.http;
+
+import java.util.Arrays;
+
+import com.github.mcollovati.vertx.support.StaticResourceIndex;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpServer;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.ext.web.Router;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(VertxUnitRunner.class)
+public class StaticResourceHandlerUT {
+
+    private Vertx vertx;
+    private HttpServer server;
+    private HttpClient client;
+
+    @Before
+    public void setUp(TestContext context) {
+        vertx = Vertx.vertx();
+        StaticResourceIndex index = StaticResourceIndex.of(Arrays.asList("webroot/range.txt", "webroot/missing.txt"));
+        Router router = Router.router(vertx);
+        router.route().handler(StaticResourceHandler.create(index, false));
+        server = vertx.createHttpServer().requestHandler(router);
+        server.listen(0, context.asyncAssertSuccess());
+        client = vertx.createHttpClient();
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test(timeout = 5000L)
+    public void shouldServeRequestedRange(TestContext context) {
+        Async async = context.async();
+        client.get(server.actualPort(), "localhost", "/webroot/range.txt", response -> {
+            context.assertEquals(206, response.statusCode());
+            context.assertEquals("bytes 2-5/10", response.getHeader(HttpHeaderNames.CONTENT_RANGE.toString()));
+            response.bodyHandler(body -> {
+                context.assertEquals("2345", body.toString());
+                async.complete();
+            });
+        }).putHeader(HttpHeaderNames.RANGE.toString(), "bytes=2-5").end();
+    }
+
+    @Test(timeout = 5000L)
+    public void shouldReplyNotModifiedForMatchingETag(TestContext context) {
+        Async async = context.async();
+        client.getNow(server.actualPort(), "localhost", "/webroot/range.txt", response -> {
+            context.assertEquals(200, response.statusCode());
+            String etag = response.getHeader("ETag");
+            context.assertNotNull(etag);
+            context.assertNotNull(response.getHeader("Last-Modified"));
+            client.get(server.actualPort(), "localhost", "/webroot/range.txt", conditional -> {
+                context.assertEquals(304, conditional.statusCode());
+                async.complete();
+            }).putHeader("If-None-Match", etag).end();
+        });
+    }
+
+    @Test(timeout = 5000L)
+    public void shouldFailWhenIndexedResourceCannotBeRead(TestContext context) {
+        Async async = context.async();
+        client.getNow(server.actualPort(), "localhost", "/webroot/missing.txt", response -> {
+            context.assertEquals(404, response.statusCode());
+            async.complete();
+        });
+    }
+
+    @Test
+    public void parseRangeShouldHandleOpenAndSuffixRanges() {
+        assertThat(StaticResourceHandler.parseRange("bytes=0-", 10)).containsExactly(0L, 9L);
+        assertThat(StaticResourceHandler.parseRange("bytes=-3", 10)).containsExactly(7L, 9L);
+        assertThat(StaticResourceHandler.parseRange("bytes=4-100", 10)).containsExactly(4L, 9L);
+        assertThat(StaticResourceHandler.parseRange("bytes=10-12", 10)).isNull();
+        assertThat(StaticResourceHandler.parseRange("items=0-1", 10)).isNull();
+    }
+}
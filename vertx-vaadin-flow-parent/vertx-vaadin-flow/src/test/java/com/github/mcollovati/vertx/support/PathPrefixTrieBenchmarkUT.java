@@ -0,0 +1,107 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.support;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import com.github.mcollovati.vertx.utils.MicroBenchmark;
+import org.junit.Test;
+
+/**
+ * Compares request classification through {@link PathPrefixTrie} with the regex and prefix routes
+ * that every Vaadin request used to be matched against.
+ */
+public class PathPrefixTrieBenchmarkUT {
+
+    private static final List<String> PATHS = Arrays.asList(
+        "/",
+        "/some/view",
+        "/VAADIN/static/client/client-F0A1B2C3.cache.js",
+        "/VAADIN/dynamic/resource/1/2f4e/report.pdf",
+        "/frontend/styles/shared-styles.html",
+        "/webjars/vaadin-button/src/vaadin-button.html"
+    );
+
+    // Routes matched with regex by the previous router setup, in order
+    private static final List<Pattern> REGEX_ROUTES = Arrays.asList(
+        Pattern.compile("^$"),
+        Pattern.compile("^(?!/(VAADIN(?!/dynamic)|frontend|frontend-es6|webjars|webroot)/).*$"),
+        Pattern.compile("/VAADIN/static/push/vaadinPush(?<min>-min)?\\.js(?<compressed>\\.gz)?"),
+        Pattern.compile("/VAADIN(?!/dynamic)/.*"),
+        Pattern.compile("/frontend/bower_components/(?<webjar>.*)")
+    );
+
+    // Routes matched by prefix by the previous router setup
+    private static final List<String> PREFIX_ROUTES = Arrays.asList(
+        "/VAADIN/static/client/", "/VAADIN/build/", "/VAADIN/static/", "/webroot/", "/webjars/",
+        "/frontend/", "/frontend-es6/"
+    );
+
+    @Test
+    public void classifyRequests() {
+        MicroBenchmark.assumeEnabled();
+        PathPrefixTrie<String> trie = PathPrefixTrie.<String>builder()
+            .add("VAADIN", "static")
+            .add("VAADIN/dynamic", "dynamic")
+            .add("frontend", "static")
+            .add("frontend-es6", "static")
+            .add("webjars", "static")
+            .add("webroot", "static")
+            .build();
+        // Stands for the static resource index lookup of paths without a known prefix
+        Map<String, String> rootResources = new HashMap<>();
+        rootResources.put("favicon.ico", "static");
+
+        MicroBenchmark.measure("regex and prefix routes, " + PATHS.size() + " paths", 100_000, () -> {
+            int matches = 0;
+            for (String path : PATHS) {
+                for (Pattern route : REGEX_ROUTES) {
+                    if (route.matcher(path).matches()) {
+                        matches++;
+                    }
+                }
+                for (String route : PREFIX_ROUTES) {
+                    if (path.startsWith(route)) {
+                        matches++;
+                    }
+                }
+            }
+            return matches;
+        });
+        MicroBenchmark.measure("path prefix trie, " + PATHS.size() + " paths", 100_000, () -> {
+            int matches = 0;
+            for (String path : PATHS) {
+                Optional<String> type = trie.find(path);
+                if (type.isPresent() || rootResources.containsKey(path.substring(1))) {
+                    matches++;
+                }
+            }
+            return matches;
+        });
+    }
+}
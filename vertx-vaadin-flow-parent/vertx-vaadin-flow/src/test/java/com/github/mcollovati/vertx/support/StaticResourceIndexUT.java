@@ -0,0 +1,109 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.support;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StaticResourceIndexUT {
+
+    private final StaticResourceIndex index = StaticResourceIndex.of(Arrays.asList(
+        "META-INF/resources/VAADIN/static/client/client.js",
+        "META-INF/VAADIN/build/vaadin-bundle.js",
+        "VAADIN/static/push/other.js",
+        "META-INF/resources/VAADIN/static/push/other.js",
+        "META-INF/resources/VAADIN/static/push/vaadinPush.js",
+        "META-INF/resources/VAADIN/static/push/vaadinPushSockJS.js",
+        "META-INF/resources/VAADIN/static/push/vaadinPushSockJS-min.js",
+        "META-INF/resources/VAADIN/dynamic/generated.js",
+        "webroot/webjars/lib/lib.js",
+        "META-INF/resources/webjars/lib/lib.js",
+        "META-INF/resources/webjars/other/other.js",
+        "META-INF/resources/frontend/styles.css",
+        "META-INF/resources/icons/icon.png",
+        "application.properties"
+    ));
+
+    @Test
+    public void resolvePublicShouldMapUrlToClasspathLocation() {
+        assertThat(index.resolvePublic("/VAADIN/static/client/client.js"))
+            .hasValue("META-INF/resources/VAADIN/static/client/client.js");
+        assertThat(index.resolvePublic("VAADIN/build/vaadin-bundle.js"))
+            .hasValue("META-INF/VAADIN/build/vaadin-bundle.js");
+        assertThat(index.resolvePublic("VAADIN/static/push/vaadinPushSockJS.js"))
+            .hasValue("META-INF/resources/VAADIN/static/push/vaadinPushSockJS.js");
+        assertThat(index.resolvePublic("frontend/styles.css"))
+            .hasValue("META-INF/resources/frontend/styles.css");
+        assertThat(index.resolvePublic("/icons/icon.png"))
+            .hasValue("META-INF/resources/icons/icon.png");
+    }
+
+    @Test
+    public void resolvePublicShouldPreferFirstLocation() {
+        assertThat(index.resolvePublic("VAADIN/static/push/other.js"))
+            .hasValue("VAADIN/static/push/other.js");
+        assertThat(index.resolvePublic("webjars/lib/lib.js"))
+            .hasValue("webroot/webjars/lib/lib.js");
+        assertThat(index.resolvePublic("webjars/other/other.js"))
+            .hasValue("META-INF/resources/webjars/other/other.js");
+    }
+
+    @Test
+    public void resolvePublicShouldResolveAliases() {
+        assertThat(index.resolvePublic("frontend/bower_components/lib/lib.js"))
+            .hasValue("webroot/webjars/lib/lib.js");
+        assertThat(index.resolvePublic("VAADIN/static/push/vaadinPush.js"))
+            .hasValue("META-INF/resources/VAADIN/static/push/vaadinPushSockJS.js");
+        assertThat(index.resolvePublic("VAADIN/static/push/vaadinPush-min.js"))
+            .hasValue("META-INF/resources/VAADIN/static/push/vaadinPushSockJS-min.js");
+    }
+
+    @Test
+    public void resolvePublicShouldNotExposeNonPublicResources() {
+        assertThat(index.resolvePublic("application.properties")).isEmpty();
+        assertThat(index.resolvePublic("VAADIN/dynamic/generated.js")).isEmpty();
+        assertThat(index.resolvePublic("frontend/missing.js")).isEmpty();
+        assertThat(index.resolvePublic("")).isEmpty();
+    }
+
+    @Test
+    public void isStaticPathShouldMatchReservedLocations() {
+        assertThat(StaticResourceIndex.isStaticPath("/VAADIN/static/missing.js")).isTrue();
+        assertThat(StaticResourceIndex.isStaticPath("/frontend/missing.js")).isTrue();
+        assertThat(StaticResourceIndex.isStaticPath("/frontend-es6/missing.js")).isTrue();
+        assertThat(StaticResourceIndex.isStaticPath("/webjars/missing.js")).isTrue();
+        assertThat(StaticResourceIndex.isStaticPath("/VAADIN/dynamic/resource/1/abc/file")).isFalse();
+        assertThat(StaticResourceIndex.isStaticPath("/")).isFalse();
+        assertThat(StaticResourceIndex.isStaticPath("/some/route")).isFalse();
+    }
+
+    @Test
+    public void withPrefixShouldReturnMatchingResources() {
+        assertThat(index.withPrefix("META-INF/resources/webjars/"))
+            .containsExactly("META-INF/resources/webjars/lib/lib.js", "META-INF/resources/webjars/other/other.js");
+        assertThat(index.withPrefix("missing/")).isEmpty();
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.utils;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import org.junit.Assume;
+
+/**
+ * Minimal harness for microbenchmarks written as tests.
+ *
+ * Benchmarks are skipped unless the {@code benchmarks} system property is set, for example with
+ * {@code mvn test -Dtest=PathPrefixTrieBenchmarkUT -Dbenchmarks=true}.
+ * Each benchmark runs a number of warm up rounds, then reports the median time per call of the measured rounds.
+ */
+public final class MicroBenchmark {
+
+    private static final int WARMUP_ROUNDS = 10;
+    private static final int MEASURED_ROUNDS = 20;
+
+    // Keeps results alive, so that the JIT does not remove the measured code
+    private static volatile Object sink;
+
+    private MicroBenchmark() {
+    }
+
+    public static void assumeEnabled() {
+        Assume.assumeTrue("Benchmarks run only with -Dbenchmarks=true", Boolean.getBoolean("benchmarks"));
+    }
+
+    /**
+     * Measures an operation.
+     *
+     * @param name          the name printed with the result
+     * @param callsPerRound how many times the operation is called in each round
+     * @param operation     the operation
+     * @return the median time per call, in ns
+     */
+    public static double measure(String name, int callsPerRound, Supplier<?> operation) {
+        double[] results = new double[MEASURED_ROUNDS];
+        for (int round = -WARMUP_ROUNDS; round < MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < callsPerRound; i++) {
+                sink = operation.get();
+            }
+            long elapsed = System.nanoTime() - start;
+            if (round >= 0) {
+                results[round] = (double) elapsed / callsPerRound;
+            }
+        }
+        Arrays.sort(results);
+        double median = results[MEASURED_ROUNDS / 2];
+        System.out.println(String.format(Locale.ROOT, "%-60s %12.1f ns/op", name, median));
+        return median;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.vaadin;
+
+import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.server.WrappedSession;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class VaadinSessionIndexUT {
+
+    private final VaadinSessionIndex index = new VaadinSessionIndex();
+
+    @Test
+    public void shouldFindSessionByCurrentId() {
+        VaadinSession vaadinSession = vaadinSession("A");
+        index.add(vaadinSession);
+
+        assertThat(index.find("A")).containsSame(vaadinSession);
+        assertThat(index.find("B")).isEmpty();
+    }
+
+    @Test
+    public void shouldFindSessionAfterIdChange() {
+        WrappedSession session = mock(WrappedSession.class);
+        when(session.getId()).thenReturn("A");
+        VaadinSession vaadinSession = mock(VaadinSession.class);
+        when(vaadinSession.getSession()).thenReturn(session);
+        index.add(vaadinSession);
+
+        when(session.getId()).thenReturn("B");
+        index.update(vaadinSession);
+
+        assertThat(index.find("A")).isEmpty();
+        assertThat(index.find("B")).containsSame(vaadinSession);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldFindSessionAfterReinitialization() {
+        VaadinSession vaadinSession = vaadinSession("A");
+        index.add(vaadinSession);
+
+        WrappedSession reinitialized = mock(WrappedSession.class);
+        when(reinitialized.getId()).thenReturn("B");
+        when(vaadinSession.getSession()).thenReturn(reinitialized);
+        assertThat(index.find("A")).isEmpty();
+        assertThat(index.find("B")).isEmpty();
+
+        index.update(vaadinSession);
+        assertThat(index.find("B")).containsSame(vaadinSession);
+    }
+
+    @Test
+    public void shouldNotFindRemovedSession() {
+        VaadinSession vaadinSession = vaadinSession("A");
+        index.add(vaadinSession);
+        index.remove(vaadinSession);
+
+        assertThat(index.find("A")).isEmpty();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    public void updateShouldNotIndexRemovedSession() {
+        VaadinSession vaadinSession = vaadinSession("A");
+        index.add(vaadinSession);
+        index.remove(vaadinSession);
+
+        index.update(vaadinSession);
+
+        assertThat(index.find("A")).isEmpty();
+        assertThat(index.size()).isZero();
+    }
+
+    private static VaadinSession vaadinSession(String id) {
+        WrappedSession session = mock(WrappedSession.class);
+        when(session.getId()).thenReturn(id);
+        VaadinSession vaadinSession = mock(VaadinSession.class);
+        when(vaadinSession.getSession()).thenReturn(session);
+        return vaadinSession;
+    }
+}
@@ -127,10 +127,17 @@ public class VertxVaadinRequestUT {
 
     @Property(trials = TRIALS)
     public void shouldDelegateGetContentLengthToHttpServerRequest(@InRange(minInt = 0, maxInt = 5000) int length) {
-        when(routingContext.getBody()).thenReturn(Buffer.buffer(new byte[length]));
+        when(httpServerRequest.getHeader(HttpHeaders.CONTENT_LENGTH)).thenReturn(Integer.toString(length));
         assertThat(vaadinRequest.getContentLength()).isEqualTo(length);
     }
 
+    @Test
+    public void getContentLengthShouldReturnMinusOneIfHeaderIsMissingOrInvalid() {
+        assertThat(vaadinRequest.getContentLength()).isEqualTo(-1);
+        when(httpServerRequest.getHeader(HttpHeaders.CONTENT_LENGTH)).thenReturn("invalid");
+        assertThat(vaadinRequest.getContentLength()).isEqualTo(-1);
+    }
+
     @Property(trials = TRIALS)
     public void shouldDelegateGetInputStreamToHttpServerRequest(String body) throws IOException {
         when(routingContext.getBody()).thenReturn(Buffer.buffer(body));
@@ -140,9 +147,9 @@ public class VertxVaadinRequestUT {
 
     @Property(trials = TRIALS)
     public void shouldDelegateGetReaderToHttpServerRequest(String body) throws IOException {
-        when(routingContext.getBodyAsString()).thenReturn(body);
+        when(routingContext.getBody()).thenReturn(Buffer.buffer(body));
         assertThat(vaadinRequest.getReader().lines().collect(Collectors.joining(System.lineSeparator())))
-            .isEqualTo(body);
+            .isEqualTo(Buffer.buffer(body).toString());
     }
 
     @Property(trials = TRIALS)
@@ -25,6 +25,7 @@ package com.github.mcollovati.vertx.vaadin;
 import javax.servlet.http.Cookie;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -35,7 +36,9 @@ import com.pholser.junit.quickcheck.From;
 import com.pholser.junit.quickcheck.Property;
 import com.pholser.junit.quickcheck.generator.InRange;
 import com.pholser.junit.quickcheck.runner.JUnitQuickcheck;
+import io.vertx.core.MultiMap;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
 import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.http.HttpServerResponse;
 import io.vertx.ext.web.RoutingContext;
@@ -56,6 +59,7 @@ import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -84,6 +88,8 @@ public class VertxVaadinResponseUT {
     @Before
     public void setUp() {
         when(routingContext.response()).thenReturn(httpServerResponse);
+        when(httpServerResponse.headers()).thenReturn(MultiMap.caseInsensitiveMultiMap());
+        when(vaadinService.getVaadinOptions()).thenReturn(new VaadinOptions(new JsonObject().put("responseBufferSize", 16)));
         vaadinResponse = new VertxVaadinResponse(vaadinService, routingContext);
     }
 
@@ -137,6 +143,7 @@ public class VertxVaadinResponseUT {
     @Test
     public void shouldDelegateGetWriter() throws Exception {
         String test = "A test string";
+        when(httpServerResponse.isChunked()).thenReturn(true);
         PrintWriter writer = vaadinResponse.getWriter();
         writer.write(test);
         writer.flush();
@@ -151,6 +158,77 @@ public class VertxVaadinResponseUT {
             .containsExactly(Buffer.buffer(test.getBytes()), Buffer.buffer(test.getBytes()));
     }
 
+    @Test
+    public void getWriterShouldNotCorruptSurrogatePairSplitAcrossWrites() throws Exception {
+        String test = "smile \uD83D\uDE00!";
+        PrintWriter writer = vaadinResponse.getWriter();
+        writer.write(test.toCharArray(), 0, 7);
+        writer.write(test.toCharArray(), 7, test.length() - 7);
+        writer.close();
+
+        ArgumentCaptor<Buffer> byteBufferCaptor = ArgumentCaptor.forClass(Buffer.class);
+        verify(httpServerResponse).end(byteBufferCaptor.capture());
+        assertThat(byteBufferCaptor.getValue()).isEqualTo(Buffer.buffer(test.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void endShouldSendContentNotFlushedByWriter() throws Exception {
+        String test = "not flushed \u00E8";
+        PrintWriter writer = vaadinResponse.getWriter();
+        writer.write(test);
+
+        vaadinResponse.end();
+
+        ArgumentCaptor<Buffer> byteBufferCaptor = ArgumentCaptor.forClass(Buffer.class);
+        verify(httpServerResponse).end(byteBufferCaptor.capture());
+        assertThat(byteBufferCaptor.getValue()).isEqualTo(Buffer.buffer(test.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void getWriterShouldEncodeWithContentTypeCharset() throws Exception {
+        String test = "caf\u00E9";
+        httpServerResponse.headers().set(HttpHeaders.CONTENT_TYPE, "text/plain; charset=ISO-8859-1");
+        PrintWriter writer = vaadinResponse.getWriter();
+        writer.write(test);
+        writer.close();
+
+        ArgumentCaptor<Buffer> byteBufferCaptor = ArgumentCaptor.forClass(Buffer.class);
+        verify(httpServerResponse).end(byteBufferCaptor.capture());
+        assertThat(byteBufferCaptor.getValue()).isEqualTo(Buffer.buffer(test.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    @Test
+    public void getOutputStreamShouldStreamChunksWhenBufferSizeIsExceeded() throws Exception {
+        OutputStream oos = vaadinResponse.getOutputStream();
+        oos.write("0123456789ABCDEFG".getBytes());
+        oos.write("DEF".getBytes());
+        oos.close();
+
+        verify(httpServerResponse).setChunked(true);
+        ArgumentCaptor<Buffer> byteBufferCaptor = ArgumentCaptor.forClass(Buffer.class);
+        verify(httpServerResponse).write(byteBufferCaptor.capture());
+        verify(httpServerResponse).end(byteBufferCaptor.capture());
+        assertThat(byteBufferCaptor.getAllValues())
+            .containsExactly(Buffer.buffer("0123456789ABCDEFG"), Buffer.buffer("DEF"));
+    }
+
+    @Test
+    public void getOutputStreamFlushShouldWriteWhenContentLengthIsKnown() throws Exception {
+        httpServerResponse.headers().set(HttpHeaders.CONTENT_LENGTH, "6");
+        OutputStream oos = vaadinResponse.getOutputStream();
+        oos.write("ABC".getBytes());
+        oos.flush();
+        oos.write("DEF".getBytes());
+        oos.close();
+
+        verify(httpServerResponse, never()).setChunked(true);
+        ArgumentCaptor<Buffer> byteBufferCaptor = ArgumentCaptor.forClass(Buffer.class);
+        verify(httpServerResponse).write(byteBufferCaptor.capture());
+        verify(httpServerResponse).end(byteBufferCaptor.capture());
+        assertThat(byteBufferCaptor.getAllValues())
+            .containsExactly(Buffer.buffer("ABC"), Buffer.buffer("DEF"));
+    }
+
     @Test
     public void getWriterShouldFailIfGetOutputStreamHasBeenCalled() throws Exception {
         vaadinResponse.getOutputStream();
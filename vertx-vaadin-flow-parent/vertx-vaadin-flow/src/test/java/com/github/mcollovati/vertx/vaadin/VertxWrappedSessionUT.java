@@ -76,9 +76,17 @@ public class VertxWrappedSessionUT {
     }
 
     @Test
-    public void setMaxInactiveIntervalIsNotSupported() throws Exception {
-        assertThatExceptionOfType(UnsupportedOperationException.class)
-            .isThrownBy(() -> vertxWrappedSession.setMaxInactiveInterval(10));
+    public void shouldDelegateSetMaxInactiveInterval() throws Exception {
+        vertxWrappedSession.setMaxInactiveInterval(10);
+        verify(session).timeout(10000L);
+    }
+
+    @Test
+    public void nonPositiveMaxInactiveIntervalShouldNeverExpire() throws Exception {
+        vertxWrappedSession.setMaxInactiveInterval(0);
+        verify(session).timeout(Long.MAX_VALUE);
+        when(session.timeout()).thenReturn(Long.MAX_VALUE);
+        assertThat(vertxWrappedSession.getMaxInactiveInterval()).isEqualTo(-1);
     }
 
     @Test
@@ -0,0 +1,100 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.vaadin.sockjs.communication;
+
+import com.github.mcollovati.vertx.Sync;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.RunTestOnContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.sstore.ClusteredSessionStore;
+import io.vertx.ext.web.sstore.SessionStore;
+import io.vertx.spi.cluster.hazelcast.HazelcastClusterManager;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(VertxUnitRunner.class)
+public class BoundSessionIT {
+
+    private static final long TIMEOUT = 30 * 60 * 1000;
+
+    @Rule
+    public RunTestOnContext rule = new RunTestOnContext(() -> Sync.await(completer -> Vertx.clusteredVertx(
+        new VertxOptions().setClusterManager(new HazelcastClusterManager()), completer
+    )));
+
+    @Test(timeout = 10000)
+    public void boundSessionShouldBeStoredAfterRevalidationInterval(TestContext context) {
+        Vertx vertx = rule.vertx();
+        Async async = context.async();
+        SessionStore store = ClusteredSessionStore.create(vertx);
+        Session session = store.createSession(TIMEOUT);
+        store.put(session, context.asyncAssertSuccess(stored -> {
+            BoundSession boundSession = new BoundSession(100);
+            boundSession.bind(session);
+            context.assertFalse(boundSession.shouldStore());
+            session.put("pushed", "value");
+
+            vertx.setTimer(150, tid -> {
+                context.assertTrue(boundSession.shouldStore());
+                boundSession.store(store, context.asyncAssertSuccess(v -> {
+                    context.assertTrue(boundSession.reusable() == session, "Stored session should stay bound");
+                    context.assertFalse(boundSession.shouldStore());
+                    store.get(session.id(), context.asyncAssertSuccess(fromStore -> {
+                        context.assertEquals("value", fromStore.get("pushed"));
+                        async.complete();
+                    }));
+                }));
+            });
+        }));
+    }
+
+    @Test(timeout = 10000)
+    public void boundSessionChangedElsewhereShouldBeLoadedAgain(TestContext context) {
+        Vertx vertx = rule.vertx();
+        Async async = context.async();
+        SessionStore store = ClusteredSessionStore.create(vertx);
+        Session session = store.createSession(TIMEOUT);
+        store.put(session, context.asyncAssertSuccess(stored -> {
+            BoundSession boundSession = new BoundSession(0);
+            boundSession.bind(session);
+            store.get(session.id(), context.asyncAssertSuccess(copy -> {
+                copy.put("xhr", "value");
+                store.put(copy, context.asyncAssertSuccess(v -> {
+                    session.put("pushed", "value");
+                    boundSession.store(store, context.asyncAssertFailure(err -> {
+                        context.assertNull(boundSession.reusable(), "Stale session should not stay bound");
+                        store.get(session.id(), context.asyncAssertSuccess(fromStore -> {
+                            context.assertEquals("value", fromStore.get("xhr"));
+                            async.complete();
+                        }));
+                    }));
+                }));
+            }));
+        }));
+    }
+}
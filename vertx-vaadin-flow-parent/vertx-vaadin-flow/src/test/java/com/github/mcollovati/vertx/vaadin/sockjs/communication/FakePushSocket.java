@@ -0,0 +1,110 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.vaadin.sockjs.communication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * In memory {@link PushSocket} whose write queue, timers and drain events are driven by tests.
+ */
+class FakePushSocket implements PushSocket {
+
+    final List<String> messages = new ArrayList<>();
+    final List<Runnable> scheduled = new ArrayList<>();
+    private final String uuid = UUID.randomUUID().toString();
+    private Runnable drainHandler;
+    boolean writeQueueFull;
+    boolean connected = true;
+
+    @Override
+    public String getUUID() {
+        return uuid;
+    }
+
+    @Override
+    public String remoteAddress() {
+        return "127.0.0.1";
+    }
+
+    @Override
+    public CompletionStage<?> send(String message) {
+        messages.add(message);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletionStage<?> close() {
+        connected = false;
+        return CompletableFuture.completedFuture(true);
+    }
+
+    @Override
+    public CompletionStage<?> closeAfter(CompletionStage<?> pendingWrite, long timeout) {
+        return pendingWrite.thenCompose(unused -> close());
+    }
+
+    @Override
+    public void schedule(long delay, Runnable task) {
+        scheduled.add(task);
+    }
+
+    @Override
+    public boolean isWriteQueueFull() {
+        return writeQueueFull;
+    }
+
+    @Override
+    public void drainHandler(Runnable handler) {
+        drainHandler = handler;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Empties the write queue, running the drain handler if any.
+     */
+    void drain() {
+        writeQueueFull = false;
+        Runnable handler = drainHandler;
+        drainHandler = null;
+        if (handler != null) {
+            handler.run();
+        }
+    }
+
+    /**
+     * Runs the tasks scheduled so far.
+     */
+    void runScheduled() {
+        List<Runnable> tasks = new ArrayList<>(scheduled);
+        scheduled.clear();
+        tasks.forEach(Runnable::run);
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.vaadin.sockjs.communication;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.internal.CurrentInstance;
+import com.vaadin.flow.server.Command;
+import com.vaadin.flow.server.VaadinSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SockJSPushConnectionUT {
+
+    private final UI ui = new UI();
+    private final TestPushConnection connection = new TestPushConnection(ui);
+    private final FakePushSocket socket = new FakePushSocket();
+
+    @Before
+    public void setUp() {
+        VaadinSession session = mock(VaadinSession.class);
+        when(session.getUIById(anyInt())).thenReturn(ui);
+        doAnswer(i -> {
+            i.getArgumentAt(0, Command.class).execute();
+            return CompletableFuture.completedFuture(null);
+        }).when(session).access(any(Command.class));
+        VaadinSession.setCurrent(session);
+    }
+
+    @After
+    public void tearDown() {
+        CurrentInstance.clearAll();
+    }
+
+    @Test
+    public void lossOfReplacedSocketShouldNotDisconnectNewSocket() {
+        FakePushSocket oldSocket = new FakePushSocket();
+        FakePushSocket newSocket = new FakePushSocket();
+        connection.connect(oldSocket);
+        connection.connect(newSocket);
+        assertThat(oldSocket.isConnected()).isFalse();
+
+        connection.connectionLost(oldSocket);
+        assertThat(connection.isConnected()).isTrue();
+        assertThat(connection.getSocket()).isSameAs(newSocket);
+
+        connection.connectionLost(newSocket);
+        assertThat(connection.isConnected()).isFalse();
+    }
+
+    @Test
+    public void asyncPushesShouldBeCoalesced() throws InterruptedException {
+        connection.setCoalescing(1, 1000, 100);
+        connection.connect(socket);
+
+        connection.push();
+        connection.push();
+        connection.push();
+        assertThat(socket.messages).isEmpty();
+
+        Thread.sleep(5);
+        socket.runScheduled();
+        assertThat(socket.messages).containsExactly("push-1");
+    }
+
+    @Test
+    public void maxPendingPushesShouldBeSentImmediately() {
+        connection.setCoalescing(1000, 1000, 2);
+        connection.connect(socket);
+
+        connection.push();
+        connection.push();
+        assertThat(socket.messages).containsExactly("push-1");
+
+        socket.runScheduled();
+        assertThat(socket.messages).containsExactly("push-1");
+    }
+
+    @Test
+    public void responseToClientShouldCarryPendingPushes() {
+        connection.setCoalescing(1, 1000, 100);
+        connection.connect(socket);
+
+        connection.push();
+        connection.push(false);
+        socket.runScheduled();
+
+        assertThat(socket.messages).containsExactly("response-1");
+    }
+
+    @Test
+    public void pushesSentWithXhrResponseShouldNotBeFlushed() throws InterruptedException {
+        connection.setCoalescing(1, 1000, 100);
+        connection.connect(socket);
+
+        connection.push();
+        // UIDL response written by an XHR request
+        ui.getInternals().incrementServerId();
+        Thread.sleep(5);
+        socket.runScheduled();
+        assertThat(socket.messages).isEmpty();
+
+        connection.push();
+        ui.getInternals().incrementServerId();
+        connection.push();
+        Thread.sleep(5);
+        socket.runScheduled();
+        assertThat(socket.messages).containsExactly("push-3");
+    }
+
+    @Test
+    public void pendingPushesShouldBeSentOnReconnection() throws InterruptedException {
+        connection.setCoalescing(1, 1000, 100);
+        connection.connect(socket);
+
+        connection.push();
+        connection.connectionLost(socket);
+        Thread.sleep(5);
+        socket.runScheduled();
+        assertThat(socket.messages).isEmpty();
+
+        FakePushSocket newSocket = new FakePushSocket();
+        connection.connect(newSocket);
+        Thread.sleep(5);
+        newSocket.runScheduled();
+        assertThat(newSocket.messages).containsExactly("push-1");
+    }
+
+    @Test
+    public void pausedConnectionShouldNotBuildMessagesUntilDrained() {
+        connection.setBackpressure(PushBackpressurePolicy.PAUSE, 0, 0);
+        connection.connect(socket);
+        socket.writeQueueFull = true;
+
+        connection.push();
+        connection.push();
+        assertThat(socket.messages).isEmpty();
+        assertThat(ui.getInternals().getServerSyncId()).isZero();
+
+        socket.drain();
+        assertThat(socket.messages).containsExactly("push-1");
+    }
+
+    @Test
+    public void resyncShouldSendSingleMessageAfterDrain() {
+        PushBackpressureStats stats = new PushBackpressureStats();
+        connection.setBackpressure(PushBackpressurePolicy.RESYNC, 0, 0);
+        connection.setBackpressureStats(stats);
+        connection.connect(socket);
+        socket.writeQueueFull = true;
+
+        connection.push();
+        connection.push();
+        connection.push(false);
+        assertThat(socket.messages).isEmpty();
+        assertThat(ui.getInternals().getServerSyncId())
+            .as("Dropped messages should not consume sync ids").isZero();
+        assertThat(stats.droppedMessages()).isEqualTo(3);
+        assertThat(stats.throttledConnections()).isEqualTo(1);
+
+        socket.drain();
+        assertThat(socket.messages).containsExactly("response-1");
+        assertThat(stats.throttledConnections()).isZero();
+        assertThat(stats.throttlingEvents()).isEqualTo(1);
+    }
+
+    @Test
+    public void disconnectByteBudgetShouldCountEncodedBytes() {
+        PushBackpressureStats stats = new PushBackpressureStats();
+        connection.setBackpressure(PushBackpressurePolicy.DISCONNECT, 12, 0);
+        connection.setBackpressureStats(stats);
+        // 11 chars, 16 bytes
+        connection.payload = "\u00e9\u00e9\u00e9\u00e9\u00e9";
+        connection.connect(socket);
+        socket.writeQueueFull = true;
+
+        connection.push();
+
+        assertThat(socket.messages).isEmpty();
+        assertThat(socket.isConnected()).isFalse();
+        assertThat(connection.isConnected()).isFalse();
+        assertThat(stats.disconnectedClients()).isEqualTo(1);
+    }
+
+    @Test
+    public void disconnectTimerOfPreviousThrottlingShouldBeIgnored() {
+        connection.setBackpressure(PushBackpressurePolicy.DISCONNECT, 0, 1000);
+        connection.connect(socket);
+        socket.writeQueueFull = true;
+        connection.push();
+        socket.drain();
+        socket.writeQueueFull = true;
+        connection.push();
+        assertThat(socket.scheduled).hasSize(2);
+
+        socket.scheduled.get(0).run();
+        assertThat(connection.isConnected()).as("Timer of drained throttling should not disconnect").isTrue();
+
+        socket.scheduled.get(1).run();
+        assertThat(connection.isConnected()).isFalse();
+        assertThat(socket.messages).containsExactly("push-1", "push-2");
+    }
+
+    /**
+     * Push connection writing a placeholder message, with the UI sync id, instead of the UIDL.
+     */
+    static class TestPushConnection extends SockJSPushConnection {
+
+        private final UI ui;
+        private String payload = "";
+
+        TestPushConnection(UI ui) {
+            super(ui);
+            this.ui = ui;
+        }
+
+        @Override
+        protected String createMessage(boolean async) {
+            ui.getInternals().incrementServerId();
+            return (async ? "push-" : "response-") + ui.getInternals().getServerSyncId() + payload;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.web;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.http.Cookie;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.handler.SessionHandler;
+import io.vertx.ext.web.sstore.SessionStore;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+@SuppressWarnings("unchecked")
+public class LazySessionHandlerUT {
+
+    private static final String COOKIE_NAME = "vertx-web.session";
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    SessionHandler delegate;
+    @Mock
+    SessionStore sessionStore;
+    @Mock
+    RoutingContext context;
+    @Mock
+    Session session;
+
+    private LazySessionHandler handler;
+    private final Map<String, Object> contextData = new HashMap<>();
+    private final List<Handler<Void>> headersEndHandlers = new ArrayList<>();
+    private final List<Handler<Void>> bodyEndHandlers = new ArrayList<>();
+    private final AtomicReference<Session> contextSession = new AtomicReference<>();
+
+    @Before
+    public void setUp() {
+        handler = LazySessionHandler.create(delegate, sessionStore)
+            .setSessionTimeout(1000)
+            .setSessionCookieName(COOKIE_NAME);
+        doAnswer(i -> {
+            contextData.put(i.getArgumentAt(0, String.class), i.getArgumentAt(1, Object.class));
+            return context;
+        }).when(context).put(anyString(), any());
+        doAnswer(i -> contextData.get(i.getArgumentAt(0, String.class))).when(context).get(anyString());
+        doAnswer(i -> contextData.remove(i.getArgumentAt(0, String.class))).when(context).remove(anyString());
+        doAnswer(i -> {
+            headersEndHandlers.add(i.getArgumentAt(0, Handler.class));
+            return headersEndHandlers.size();
+        }).when(context).addHeadersEndHandler(any());
+        doAnswer(i -> {
+            bodyEndHandlers.add(i.getArgumentAt(0, Handler.class));
+            return bodyEndHandlers.size();
+        }).when(context).addBodyEndHandler(any());
+        doAnswer(i -> {
+            contextSession.set(i.getArgumentAt(0, Session.class));
+            return null;
+        }).when(context).setSession(any());
+        when(context.session()).thenAnswer(i -> contextSession.get());
+        when(sessionStore.createSession(anyLong(), anyInt())).thenReturn(session);
+        when(session.id()).thenReturn("session-id");
+    }
+
+    @Test
+    public void requestWithSessionCookieShouldBeDelegated() {
+        when(context.getCookie(COOKIE_NAME)).thenReturn(Cookie.cookie(COOKIE_NAME, "existing"));
+        storeLookup("existing", Future.succeededFuture(session));
+
+        handler.handle(context);
+
+        verify(delegate).handle(context);
+        verify(context, never()).next();
+    }
+
+    @Test
+    public void requestWithStaleSessionCookieShouldNotCreateSession() {
+        when(context.getCookie(COOKIE_NAME)).thenReturn(Cookie.cookie(COOKIE_NAME, "expired"));
+        storeLookup("expired", Future.succeededFuture());
+
+        handler.handle(context);
+
+        verify(context).next();
+        verifyZeroInteractions(delegate);
+        assertThat(LazySessionHandler.session(context, false)).isNull();
+        verify(sessionStore, never()).createSession(anyLong(), anyInt());
+        assertThat(LazySessionHandler.session(context, true)).isSameAs(session);
+    }
+
+    @Test
+    public void requestWithSessionCookieShouldBeDelegatedIfLookupFails() {
+        when(context.getCookie(COOKIE_NAME)).thenReturn(Cookie.cookie(COOKIE_NAME, "existing"));
+        storeLookup("existing", Future.failedFuture("unavailable"));
+
+        handler.handle(context);
+
+        verify(delegate).handle(context);
+        verify(context, never()).next();
+    }
+
+    @Test
+    public void requestWithoutSessionCookieShouldNotCreateSession() {
+        handler.handle(context);
+
+        verify(context).next();
+        verifyZeroInteractions(delegate);
+        assertThat(LazySessionHandler.session(context, false)).isNull();
+        headersEndHandlers.forEach(h -> h.handle(null));
+        bodyEndHandlers.forEach(h -> h.handle(null));
+        verifyZeroInteractions(sessionStore);
+    }
+
+    @Test
+    public void sessionShouldBeCreatedAndStoredOnDemand() {
+        handler.handle(context);
+
+        Session created = LazySessionHandler.session(context, true);
+        assertThat(created).isSameAs(session);
+        assertThat(LazySessionHandler.session(context, true)).isSameAs(session);
+        verify(sessionStore).createSession(1000, SessionHandler.DEFAULT_SESSIONID_MIN_LENGTH);
+        verify(sessionStore, never()).put(any(), any());
+
+        headersEndHandlers.forEach(h -> h.handle(null));
+        ArgumentCaptor<Cookie> cookie = ArgumentCaptor.forClass(Cookie.class);
+        verify(context).addCookie(cookie.capture());
+        assertThat(cookie.getValue().getName()).isEqualTo(COOKIE_NAME);
+        assertThat(cookie.getValue().getValue()).isEqualTo("session-id");
+        verify(sessionStore, never()).put(any(), any());
+
+        bodyEndHandlers.forEach(h -> h.handle(null));
+        verify(session).setAccessed();
+        verify(sessionStore).put(eq(session), any());
+    }
+
+    @Test
+    public void settingsShouldApplyToDelegateAndLazyCookie() {
+        handler.setSessionCookiePath("/app")
+            .setCookieSecureFlag(true)
+            .setCookieHttpOnlyFlag(true)
+            .setMinLength(48);
+        verify(delegate).setSessionTimeout(1000);
+        verify(delegate).setSessionCookieName(COOKIE_NAME);
+        verify(delegate).setSessionCookiePath("/app");
+        verify(delegate).setCookieSecureFlag(true);
+        verify(delegate).setCookieHttpOnlyFlag(true);
+        verify(delegate).setMinLength(48);
+
+        handler.handle(context);
+        LazySessionHandler.session(context, true);
+        headersEndHandlers.forEach(h -> h.handle(null));
+
+        verify(sessionStore).createSession(1000, 48);
+        ArgumentCaptor<Cookie> cookie = ArgumentCaptor.forClass(Cookie.class);
+        verify(context).addCookie(cookie.capture());
+        String header = cookie.getValue().encode();
+        assertThat(header).contains("Path=/app").contains("Secure").contains("HTTPOnly");
+    }
+
+    @Test
+    public void destroyedSessionShouldNotBeStored() {
+        handler.handle(context);
+        LazySessionHandler.session(context, true);
+        when(session.isDestroyed()).thenReturn(true);
+
+        headersEndHandlers.forEach(h -> h.handle(null));
+        bodyEndHandlers.forEach(h -> h.handle(null));
+
+        verify(context, never()).addCookie(any(Cookie.class));
+        verify(sessionStore, never()).put(any(), any());
+    }
+
+    @Test
+    public void sessionShouldNotBeCreatedWithoutLazySessionHandler() {
+        assertThat(LazySessionHandler.session(context, true)).isNull();
+        verifyZeroInteractions(sessionStore);
+    }
+
+    private void storeLookup(String sessionId, AsyncResult<Session> result) {
+        doAnswer(i -> {
+            i.getArgumentAt(1, Handler.class).handle(result);
+            return null;
+        }).when(sessionStore).get(eq(sessionId), any());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.web.serialization;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+import com.github.mcollovati.vertx.utils.MicroBenchmark;
+import org.junit.Test;
+
+/**
+ * Compares the attribute codecs with the new {@link ObjectOutputStream} per attribute
+ * that was used before codecs were introduced.
+ */
+public class AttributeCodecBenchmarkUT {
+
+    private static final int CALLS = 10_000;
+
+    @Test
+    public void encodeAndDecodeAttribute() throws Exception {
+        MicroBenchmark.assumeEnabled();
+        UserState attribute = UserState.sample();
+        CompactBinaryCodec compact = CompactBinaryCodec.builder()
+            .register(UserState.class, 1)
+            .register(Item.class, 2)
+            .build();
+
+        MicroBenchmark.measure("encode, new ObjectOutputStream", CALLS, () -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (ObjectOutputStream stream = new ObjectOutputStream(out)) {
+                stream.writeObject(attribute);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            return out;
+        });
+        measureCodec("java serialization codec", JavaSerializationCodec.INSTANCE, attribute);
+        measureCodec("compact binary codec", compact, attribute);
+    }
+
+    private static void measureCodec(String name, AttributeCodec codec, Object attribute) throws Exception {
+        byte[] payload = encode(codec, attribute);
+        System.out.println(name + ": " + payload.length + " bytes");
+        MicroBenchmark.measure("encode, " + name, CALLS, () -> encode(codec, attribute));
+        MicroBenchmark.measure("decode, " + name, CALLS, () -> {
+            try {
+                return codec.decode(new ByteArrayInputStream(payload));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            } catch (ClassNotFoundException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+    }
+
+    private static byte[] encode(AttributeCodec codec, Object attribute) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            codec.encode(attribute, out);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    // Stands for a typical application attribute: a few scalar fields and a small collection of beans
+    static class UserState implements Serializable {
+        private UUID id;
+        private String userName;
+        private Locale locale;
+        private long lastAccess;
+        private List<Item> cart = new ArrayList<>();
+        private Map<String, Object> preferences = new HashMap<>();
+
+        static UserState sample() {
+            UserState state = new UserState();
+            state.id = new UUID(42, 24);
+            state.userName = "john.doe";
+            state.locale = Locale.ITALY;
+            state.lastAccess = 1_570_000_000_000L;
+            for (int i = 0; i < 20; i++) {
+                state.cart.add(new Item("SKU-" + i, "Item number " + i, i + 1, 9.99 * i));
+            }
+            state.preferences.put("theme", "dark");
+            state.preferences.put("pageSize", 50);
+            state.preferences.put("notifications", Boolean.TRUE);
+            return state;
+        }
+    }
+
+    static class Item implements Serializable {
+        private final String sku;
+        private final String description;
+        private final int quantity;
+        private final double price;
+
+        Item(String sku, String description, int quantity, double price) {
+            this.sku = sku;
+            this.description = description;
+            this.quantity = quantity;
+            this.price = price;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.web.serialization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SerializableHolderUT {
+
+    @Test
+    public void attributeShouldBeDecodedOnFirstGet() {
+        Buffer buffer = Buffer.buffer().appendString("prefix");
+        new SerializableHolder(new ArrayList<>(Arrays.asList("a", "b"))).writeToBuffer(buffer);
+
+        SerializableHolder holder = new SerializableHolder();
+        assertThat(holder.readFromBuffer(6, buffer)).isEqualTo(buffer.length());
+        assertThat(holder.isDecoded()).isFalse();
+
+        assertThat(holder.get()).isEqualTo(Arrays.asList("a", "b"));
+        assertThat(holder.isDecoded()).isTrue();
+    }
+
+    @Test
+    public void undecodedAttributeShouldBeWrittenAsRead() {
+        Buffer source = Buffer.buffer();
+        new SerializableHolder(new ArrayList<>(Arrays.asList("a", "b"))).writeToBuffer(source);
+        SerializableHolder holder = new SerializableHolder();
+        holder.readFromBuffer(0, source);
+
+        Buffer copy = Buffer.buffer();
+        holder.writeToBuffer(copy);
+        assertThat(copy.getBytes()).isEqualTo(source.getBytes());
+        assertThat(holder.isDecoded()).isFalse();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void decodedAttributeShouldBeSerializedAgain() {
+        Buffer source = Buffer.buffer();
+        new SerializableHolder(new ArrayList<>(Arrays.asList("a", "b"))).writeToBuffer(source);
+        SerializableHolder holder = new SerializableHolder();
+        holder.readFromBuffer(0, source);
+        ((List<String>) holder.get()).add("c");
+
+        Buffer copy = Buffer.buffer();
+        holder.writeToBuffer(copy);
+        SerializableHolder fromCopy = new SerializableHolder();
+        fromCopy.readFromBuffer(0, copy);
+        assertThat(fromCopy.get()).isEqualTo(Arrays.asList("a", "b", "c"));
+    }
+}
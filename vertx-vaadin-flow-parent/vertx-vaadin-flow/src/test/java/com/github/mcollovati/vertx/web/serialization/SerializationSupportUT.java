@@ -0,0 +1,222 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.web.serialization;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SerializationSupportUT {
+
+    @Test
+    public void javaCodecShouldRoundTrip() {
+        assertRoundTrip(JavaSerializationCodec.INSTANCE);
+    }
+
+    @Test
+    public void compactCodecShouldRoundTrip() {
+        assertRoundTrip(CompactBinaryCodec.create());
+    }
+
+    @Test
+    public void compactCodecShouldRoundTripRegisteredClasses() {
+        assertRoundTrip(CompactBinaryCodec.builder().register(Item.class, 0).build());
+    }
+
+    @Test
+    public void registeredClassesShouldBeWrittenCompactly() {
+        Buffer plain = Buffer.buffer();
+        SerializationSupport.create(CompactBinaryCodec.create(), -1).writeToBuffer(plain, graph());
+
+        Buffer registered = Buffer.buffer();
+        SerializationSupport.create(CompactBinaryCodec.builder().register(Item.class, 0).build(), -1)
+            .writeToBuffer(registered, graph());
+
+        assertThat(registered.length()).isLessThan(plain.length());
+    }
+
+    @Test
+    public void attributesShouldBeReadWithTheCodecThatWroteThem() {
+        Buffer buffer = Buffer.buffer();
+        SerializationSupport.create(CompactBinaryCodec.create(), -1).writeToBuffer(buffer, graph());
+        SerializationSupport.DEFAULT.writeToBuffer(buffer, graph());
+
+        AtomicReference<Item> first = new AtomicReference<>();
+        AtomicReference<Item> second = new AtomicReference<>();
+        int pos = SerializationSupport.DEFAULT.readFromBuffer(0, buffer, first::set);
+        assertThat(SerializationSupport.DEFAULT.readFromBuffer(pos, buffer, second::set)).isEqualTo(buffer.length());
+        assertThat(first.get().children).hasSize(3);
+        assertThat(second.get().children).hasSize(3);
+    }
+
+    @Test
+    public void payloadsAboveThresholdShouldBeCompressed() {
+        String large = String.join("", Collections.nCopies(2000, "session"));
+        Buffer uncompressed = Buffer.buffer();
+        SerializationSupport.DEFAULT.writeToBuffer(uncompressed, large);
+
+        SerializationSupport compressing = SerializationSupport.create(JavaSerializationCodec.INSTANCE, 1024);
+        Buffer compressed = Buffer.buffer();
+        compressing.writeToBuffer(compressed, large);
+        assertThat(compressed.getByte(0) & 0x80).isNotZero();
+        assertThat(compressed.length()).isLessThan(uncompressed.length() / 10);
+
+        AtomicReference<String> read = new AtomicReference<>();
+        assertThat(SerializationSupport.DEFAULT.readFromBuffer(0, compressed, read::set)).isEqualTo(compressed.length());
+        assertThat(read.get()).isEqualTo(large);
+    }
+
+    @Test
+    public void payloadsBelowThresholdShouldNotBeCompressed() {
+        SerializationSupport compressing = SerializationSupport.create(JavaSerializationCodec.INSTANCE, 1024);
+        Buffer buffer = Buffer.buffer();
+        compressing.writeToBuffer(buffer, graph());
+        assertThat(buffer.getByte(0)).isEqualTo(JavaSerializationCodec.ID);
+
+        AtomicReference<Item> read = new AtomicReference<>();
+        compressing.readFromBuffer(0, buffer, read::set);
+        assertThat(read.get().children).hasSize(3);
+    }
+
+    @Test
+    public void unknownCodecShouldSkipAttribute() {
+        Buffer buffer = Buffer.buffer().appendByte((byte) 99).appendInt(3).appendBytes(new byte[3]).appendByte((byte) 1);
+        AtomicReference<Object> read = new AtomicReference<>();
+        assertThat(SerializationSupport.DEFAULT.readFromBuffer(0, buffer, read::set)).isEqualTo(8);
+        assertThat(read.get()).isNull();
+    }
+
+    @Test
+    public void instancesShouldNotShareSettings() {
+        SerializationSupport compact = SerializationSupport.create(CompactBinaryCodec.create(), 1024);
+        assertThat(SerializationSupport.DEFAULT.codec()).isSameAs(JavaSerializationCodec.INSTANCE);
+        assertThat(SerializationSupport.DEFAULT.compressionThreshold()).isNegative();
+        assertThat(compact.codec().id()).isEqualTo(CompactBinaryCodec.ID);
+        assertThat(compact.compressionThreshold()).isEqualTo(1024);
+    }
+
+    @Test
+    public void legacyHeaderlessAttributesShouldBeRead() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(graph());
+        }
+        Buffer buffer = Buffer.buffer().appendInt(bytes.size()).appendBytes(bytes.toByteArray()).appendByte((byte) 7);
+
+        AtomicReference<Item> read = new AtomicReference<>();
+        assertThat(SerializationSupport.skip(0, buffer)).isEqualTo(buffer.length() - 1);
+        assertThat(SerializationSupport.DEFAULT.readFromBuffer(0, buffer, read::set)).isEqualTo(buffer.length() - 1);
+        assertThat(read.get().children).hasSize(3);
+    }
+
+    @Test
+    public void reusedStreamsShouldWriteSameBytesAsNewStreams() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(graph());
+        }
+        for (int i = 0; i < 3; i++) {
+            Buffer buffer = Buffer.buffer();
+            SerializationSupport.DEFAULT.writeToBuffer(buffer, graph());
+            assertThat(buffer.getBytes(5, buffer.length())).isEqualTo(bytes.toByteArray());
+        }
+
+        SerializationSupport compact = SerializationSupport.create(CompactBinaryCodec.create(), -1);
+        Buffer first = Buffer.buffer();
+        compact.writeToBuffer(first, graph());
+        Buffer second = Buffer.buffer();
+        compact.writeToBuffer(second, graph());
+        assertThat(second.getBytes()).isEqualTo(first.getBytes());
+    }
+
+    @Test
+    public void failedWriteShouldNotAffectNextWrites() {
+        Buffer failed = Buffer.buffer();
+        SerializationSupport.DEFAULT.writeToBuffer(failed, new Item("root", null).withChild(new Object()));
+
+        Buffer buffer = Buffer.buffer();
+        SerializationSupport.DEFAULT.writeToBuffer(buffer, graph());
+        AtomicReference<Item> read = new AtomicReference<>();
+        assertThat(SerializationSupport.DEFAULT.readFromBuffer(0, buffer, read::set)).isEqualTo(buffer.length());
+        assertThat(read.get().children).hasSize(3);
+    }
+
+    @Test
+    public void duplicatedClassIdShouldBeRejected() {
+        assertThatThrownBy(() -> CompactBinaryCodec.builder().register(Item.class, 0).register(String.class, 0))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CompactBinaryCodec.builder().register(Item.class, -1))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void assertRoundTrip(AttributeCodec codec) {
+        SerializationSupport serialization = SerializationSupport.create(codec, -1);
+        Buffer buffer = Buffer.buffer();
+        serialization.writeToBuffer(buffer, graph());
+        assertThat(buffer.getByte(0)).isEqualTo(codec.id());
+
+        AtomicReference<Item> read = new AtomicReference<>();
+        assertThat(serialization.readFromBuffer(0, buffer, read::set)).isEqualTo(buffer.length());
+        Item root = read.get();
+        assertThat(root.name).isEqualTo("root");
+        assertThat(root.children).extracting(item -> item.name).containsExactly("child0", "child1", "child2");
+        assertThat(root.children).allSatisfy(child -> assertThat(child.parent).isSameAs(root));
+    }
+
+    private static Item graph() {
+        Item root = new Item("root", null);
+        for (int i = 0; i < 3; i++) {
+            root.children.add(new Item("child" + i, root));
+        }
+        return root;
+    }
+
+    private static class Item implements Serializable {
+        private final String name;
+        private final Item parent;
+        private final List<Item> children = new ArrayList<>();
+        private Object payload;
+
+        Item(String name, Item parent) {
+            this.name = name;
+            this.parent = parent;
+        }
+
+        Item withChild(Object payload) {
+            Item child = new Item("child", this);
+            child.payload = payload;
+            children.add(child);
+            return this;
+        }
+    }
+}
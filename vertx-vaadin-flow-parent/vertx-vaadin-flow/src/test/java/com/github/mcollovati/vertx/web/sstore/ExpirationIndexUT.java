@@ -0,0 +1,116 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.web.sstore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExpirationIndexUT {
+
+    private final ExpirationIndex index = new ExpirationIndex();
+
+    @Test
+    public void pollDueShouldReturnOnlyExpiredSessionsInDeadlineOrder() {
+        index.schedule("late", 300);
+        index.schedule("first", 100);
+        index.schedule("second", 200);
+
+        assertThat(pollDue(250)).containsExactly("first", "second");
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(pollDue(250)).isEmpty();
+        assertThat(pollDue(301)).containsExactly("late");
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    public void scheduleShouldReplacePreviousDeadline() {
+        index.schedule("session", 100);
+        index.schedule("session", 500);
+
+        assertThat(pollDue(200)).isEmpty();
+        assertThat(pollDue(501)).containsExactly("session");
+    }
+
+    @Test
+    public void removeShouldUnscheduleSession() {
+        index.schedule("removed", 100);
+        index.schedule("kept", 100);
+        index.remove("removed");
+        index.remove("missing");
+
+        assertThat(pollDue(200)).containsExactly("kept");
+    }
+
+    @Test
+    public void clearShouldUnscheduleAllSessions() {
+        index.schedule("a", 100);
+        index.schedule("b", 200);
+        index.clear();
+
+        assertThat(index.size()).isZero();
+        assertThat(pollDue(Long.MAX_VALUE)).isEmpty();
+    }
+
+    @Test
+    public void pollDueShouldStopAtLimit() {
+        index.schedule("first", 100);
+        index.schedule("second", 200);
+        index.schedule("third", 300);
+
+        List<String> due = new ArrayList<>();
+        assertThat(index.pollDue(500, 2, due::add)).isEqualTo(2);
+        assertThat(due).containsExactly("first", "second");
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void segmentedPollDueShouldResumeAfterLimitIsReached() {
+        SegmentedExpirationIndex segmented = new SegmentedExpirationIndex();
+        for (int i = 0; i < 50; i++) {
+            segmented.schedule("session-" + i, 100);
+        }
+        segmented.schedule("later", 1000);
+
+        List<String> due = new ArrayList<>();
+        int runs = 0;
+        boolean done;
+        do {
+            done = segmented.pollDue(500, 10, due::add);
+            runs++;
+        } while (!done);
+
+        assertThat(runs).isGreaterThan(1);
+        assertThat(due).hasSize(50).doesNotContain("later");
+        assertThat(segmented.size()).isEqualTo(1);
+    }
+
+    private List<String> pollDue(long now) {
+        List<String> due = new ArrayList<>();
+        index.pollDue(now, due::add);
+        return due;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.web.sstore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.github.mcollovati.vertx.web.ExtendedSession;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.RunTestOnContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.ext.web.Session;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+@RunWith(VertxUnitRunner.class)
+public class ExtendedLocalSessionStoreUT {
+
+    @Rule
+    public RunTestOnContext rule = new RunTestOnContext();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(timeout = 5000)
+    public void idleSessionShouldBePassivatedAndActivatedOnGet(TestContext context) throws IOException {
+        Vertx vertx = rule.vertx();
+        Async async = context.async();
+        ExtendedLocalSessionStore store = ExtendedLocalSessionStore.create(vertx, "passivation-test", 50,
+            folder.newFolder().toPath(), 100);
+        Session session = store.createSession(30 * 60 * 1000);
+        ExtendedSession.adapt(session).put("attribute", new StringBuilder("value"));
+        store.put(session, context.asyncAssertSuccess());
+
+        vertx.setTimer(1000, tid -> {
+            context.assertEquals(1, store.passivatedSessions());
+            context.assertNull(vertx.sharedData().getLocalMap("passivation-test").get(session.id()));
+            store.get(session.id(), context.asyncAssertSuccess(activated -> {
+                context.assertNotNull(activated);
+                context.assertEquals(0, store.passivatedSessions());
+                context.assertEquals(session.lastAccessed(), activated.lastAccessed());
+                context.assertEquals("value", ExtendedSession.adapt(activated).get("attribute").toString());
+                store.close();
+                async.complete();
+            }));
+        });
+    }
+
+    @Test(timeout = 5000)
+    public void storesSharingMapShouldSharePassivatedSessions(TestContext context) throws IOException {
+        Vertx vertx = rule.vertx();
+        Async async = context.async();
+        Path directory = folder.newFolder().toPath();
+        ExtendedLocalSessionStore first = ExtendedLocalSessionStore.create(vertx, "passivation-test", 50, directory, 100);
+        ExtendedLocalSessionStore second = ExtendedLocalSessionStore.create(vertx, "passivation-test", 50, directory, 100);
+        Session session = first.createSession(30 * 60 * 1000);
+        ExtendedSession.adapt(session).put("attribute", "first");
+        first.put(session, context.asyncAssertSuccess());
+
+        vertx.setTimer(1000, tid -> {
+            context.assertEquals(1, second.passivatedSessions());
+            second.get(session.id(), context.asyncAssertSuccess(activated -> {
+                context.assertNotNull(activated, "Session passivated by the other store should be activated");
+                context.assertEquals("first", ExtendedSession.adapt(activated).get("attribute"));
+                first.close();
+                context.assertTrue(Files.exists(directory.resolve("passivation-test.passivated")),
+                    "Passivation file should be kept while used by another store");
+
+                ExtendedSession.adapt(activated).put("attribute", "second");
+                second.put(activated, context.asyncAssertSuccess());
+                vertx.setTimer(1000, tid2 -> second.get(session.id(), context.asyncAssertSuccess(again -> {
+                    context.assertNotNull(again);
+                    context.assertEquals("second", ExtendedSession.adapt(again).get("attribute"));
+                    second.close();
+                    vertx.setTimer(200, tid3 -> {
+                        context.assertFalse(Files.exists(directory.resolve("passivation-test.passivated")));
+                        async.complete();
+                    });
+                })));
+            }));
+        });
+    }
+
+    @Test(timeout = 5000)
+    public void passivatedSessionShouldExpire(TestContext context) throws IOException {
+        Vertx vertx = rule.vertx();
+        Async async = context.async();
+        ExtendedLocalSessionStore store = ExtendedLocalSessionStore.create(vertx, "passivation-test", 50,
+            folder.newFolder().toPath(), 100);
+        Session session = store.createSession(1000);
+        store.expirationHandler(context.asyncAssertSuccess(id -> {
+            context.assertEquals(session.id(), id);
+            context.assertEquals(0, store.passivatedSessions());
+            store.close();
+            async.complete();
+        }));
+        store.put(session, context.asyncAssertSuccess());
+    }
+
+    @Test(timeout = 5000)
+    public void sessionShouldExpireAfterItsOwnTimeout(TestContext context) {
+        Vertx vertx = rule.vertx();
+        Async async = context.async();
+        ExtendedLocalSessionStore store = ExtendedLocalSessionStore.create(vertx, "timeout-test", 50);
+        Session shortLived = store.createSession(30 * 60 * 1000);
+        Session longLived = store.createSession(30 * 60 * 1000);
+        ExtendedSession.adapt(shortLived).timeout(200);
+        store.expirationHandler(context.asyncAssertSuccess(id -> {
+            context.assertEquals(shortLived.id(), id);
+            store.get(longLived.id(), context.asyncAssertSuccess(session -> {
+                context.assertNotNull(session);
+                store.close();
+                async.complete();
+            }));
+        }));
+        store.put(shortLived, context.asyncAssertSuccess());
+        store.put(longLived, context.asyncAssertSuccess());
+    }
+
+    @Test(timeout = 5000)
+    public void expiredHandlersShouldBeCalledByReaper(TestContext context) {
+        Vertx vertx = rule.vertx();
+        Async async = context.async(2);
+        ExtendedLocalSessionStore store = ExtendedLocalSessionStore.create(vertx, "expired-handlers-test", 50);
+        Session session = store.createSession(200);
+        ExtendedSession extended = ExtendedSession.adapt(session);
+        extended.addExpiredHandler(expired -> {
+            context.assertEquals(session.id(), expired.id());
+            async.countDown();
+        });
+        int removed = extended.addExpiredHandler(expired -> context.fail("Removed handler should not be called"));
+        context.assertTrue(extended.removeHeadersEndHandler(removed));
+        context.assertFalse(extended.removeHeadersEndHandler(removed));
+        store.expirationHandler(context.asyncAssertSuccess(id -> async.countDown()));
+        store.put(session, context.asyncAssertSuccess());
+        async.handler(v -> store.close());
+    }
+
+    @Test(timeout = 5000)
+    public void sessionsShouldBeRestoredFromSnapshot(TestContext context) throws IOException {
+        Vertx vertx = rule.vertx();
+        Path snapshot = folder.newFolder().toPath().resolve("sessions.snapshot");
+        ExtendedLocalSessionStore store = ExtendedLocalSessionStore.create(vertx, "snapshot-source");
+        Session session = store.createSession(30 * 60 * 1000);
+        ExtendedSession.adapt(session).put("attribute", new StringBuilder("value"));
+        Session expired = store.createSession(1);
+        store.put(session, context.asyncAssertSuccess());
+        store.put(expired, context.asyncAssertSuccess());
+
+        store.snapshot(snapshot, context.asyncAssertSuccess(saved -> {
+            context.assertEquals(2, saved);
+            ExtendedLocalSessionStore restoredStore = ExtendedLocalSessionStore.create(vertx, "snapshot-target");
+            restoredStore.restore(snapshot, context.asyncAssertSuccess(restored -> {
+                context.assertEquals(1, restored);
+                context.assertFalse(Files.exists(snapshot), "Snapshot should be deleted once restored");
+                restoredStore.get(session.id(), context.asyncAssertSuccess(restoredSession -> {
+                    context.assertEquals(session.lastAccessed(), restoredSession.lastAccessed());
+                    context.assertEquals(session.timeout(), restoredSession.timeout());
+                    context.assertEquals("value", ExtendedSession.adapt(restoredSession).get("attribute").toString());
+                }));
+            }));
+        }));
+    }
+
+    @Test
+    public void restoreShouldIgnoreMissingSnapshot(TestContext context) throws IOException {
+        ExtendedLocalSessionStore store = ExtendedLocalSessionStore.create(rule.vertx());
+        store.restore(folder.getRoot().toPath().resolve("missing"), context.asyncAssertSuccess(restored ->
+            context.assertEquals(0, restored)
+        ));
+    }
+}
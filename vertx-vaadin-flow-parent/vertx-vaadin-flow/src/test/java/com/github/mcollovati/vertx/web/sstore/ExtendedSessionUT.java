@@ -22,13 +22,22 @@
  */
 package com.github.mcollovati.vertx.web.sstore;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import com.github.mcollovati.vertx.web.AdjustableTimeoutSessionImpl;
 import com.github.mcollovati.vertx.web.ExtendedSession;
+import com.github.mcollovati.vertx.web.ExtendedSessionImpl;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.shareddata.impl.ClusterSerializable;
 import io.vertx.ext.auth.PRNG;
 import io.vertx.ext.web.sstore.SessionStore;
 import io.vertx.ext.web.sstore.impl.SharedDataSessionImpl;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -38,9 +47,23 @@ import static org.assertj.core.api.Assertions.assertThat;
  */
 public class ExtendedSessionUT {
 
+    private Vertx vertx;
+    private PRNG random;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+        random = new PRNG(vertx);
+    }
+
+    @After
+    public void tearDown() {
+        random.close();
+        vertx.close();
+    }
+
     @Test
     public void extendeSessionShouldBeClusterSerializable() throws InterruptedException {
-        Vertx vertx = Vertx.vertx();
         SharedDataSessionImpl delegate = new SharedDataSessionImpl(new PRNG(vertx), 3000, SessionStore.DEFAULT_SESSIONID_LENGTH);
         ExtendedSession extendedSession = ExtendedSession.adapt(delegate);
         assertThat(extendedSession).isInstanceOf(ClusterSerializable.class);
@@ -63,4 +86,107 @@ public class ExtendedSessionUT {
         assertThat(fromBuffer.data()).isEqualTo(delegate.data());
 
     }
+
+    @Test
+    public void readingAttributesShouldNotMarkSessionDirty() {
+        ExtendedSessionImpl session = newSession();
+        session.put("counter", new CountingAttribute());
+        session.writeDeltaToBuffer(Buffer.buffer());
+
+        session.get("counter");
+        session.data();
+        assertThat(session.isDirty()).isFalse();
+
+        session.markDirty("counter");
+        assertThat(session.isDirty()).isTrue();
+    }
+
+    @Test
+    public void attributesShouldBeSerializedOnceForDeltaAndFullWrite() {
+        ExtendedSessionImpl session = newSession();
+        CountingAttribute attribute = new CountingAttribute();
+        session.put("counter", attribute);
+
+        session.writeDeltaToBuffer(Buffer.buffer());
+        session.writeToBuffer(Buffer.buffer());
+        assertThat(attribute.writes).isEqualTo(1);
+
+        session.dropEncodedAttributes();
+        session.writeToBuffer(Buffer.buffer());
+        assertThat(attribute.writes).isEqualTo(2);
+    }
+
+    @Test
+    public void markDirtyShouldSerializeAttributeAgain() {
+        ExtendedSessionImpl session = newSession();
+        CountingAttribute attribute = new CountingAttribute();
+        session.put("counter", attribute);
+        session.writeDeltaToBuffer(Buffer.buffer());
+
+        session.markDirty("counter");
+        session.writeDeltaToBuffer(Buffer.buffer());
+        assertThat(attribute.writes).isEqualTo(2);
+    }
+
+    @Test
+    public void copyShouldNotShareStateWithOriginal() {
+        ExtendedSessionImpl session = newSession();
+        session.put("key", "value");
+        session.addExpiredHandler(s -> {});
+
+        ExtendedSessionImpl copy = session.copy();
+        copy.put("key", "changed");
+
+        assertThat(copy.id()).isEqualTo(session.id());
+        assertThat(copy.version()).isEqualTo(session.version());
+        assertThat(copy.hasExpiredHandlers()).isTrue();
+        assertThat(session.<String>get("key")).isEqualTo("value");
+    }
+
+    @Test
+    public void copyShouldShareAttributesWithoutSerializingThem() {
+        ExtendedSessionImpl session = newSession();
+        CountingAttribute attribute = new CountingAttribute();
+        session.put("counter", attribute);
+
+        ExtendedSessionImpl copy = session.copy();
+
+        assertThat(attribute.writes).isZero();
+        assertThat(copy.<CountingAttribute>get("counter")).isSameAs(attribute);
+    }
+
+    @Test
+    public void deltaAttributesShouldBeDecodedWhenRead() {
+        ExtendedSessionImpl session = newSession();
+        ExtendedSessionImpl remote = session.copy();
+        session.put("counter", new CountingAttribute());
+        Buffer delta = Buffer.buffer();
+        session.writeDeltaToBuffer(delta);
+        int reads = CountingAttribute.reads;
+
+        remote.readDeltaFromBuffer(0, delta);
+        assertThat(CountingAttribute.reads).isEqualTo(reads);
+
+        assertThat(remote.<CountingAttribute>get("counter")).isNotNull();
+        assertThat(CountingAttribute.reads).isEqualTo(reads + 1);
+    }
+
+    private ExtendedSessionImpl newSession() {
+        return new ExtendedSessionImpl(new AdjustableTimeoutSessionImpl(random, 3000, SessionStore.DEFAULT_SESSIONID_LENGTH));
+    }
+
+    private static class CountingAttribute implements Serializable {
+        private static int reads;
+        private transient int writes;
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            writes++;
+            out.defaultWriteObject();
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            reads++;
+            in.defaultReadObject();
+        }
+    }
 }
@@ -27,11 +27,14 @@ import java.util.Objects;
 
 import com.github.mcollovati.vertx.Sync;
 import com.github.mcollovati.vertx.web.ExtendedSession;
+import com.github.mcollovati.vertx.web.ExtendedSessionImpl;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.VertxOptions;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
 import io.vertx.core.shareddata.AsyncMap;
 import io.vertx.core.shareddata.LocalMap;
 import io.vertx.ext.auth.PRNG;
@@ -193,6 +196,72 @@ public class NearCacheSessionStoreIT {
         }));
     }
 
+    @Test(timeout = 5000)
+    public void getShouldCountHitsAndMisses(TestContext context) {
+        Vertx vertx = rule.vertx();
+        ExtendedSession session = createSession(vertx);
+        remoteMap.put(session.id(), session, context.asyncAssertSuccess(u -> {
+            NearCacheSessionStore sessionStore = NearCacheSessionStore.create(vertx);
+            sessionStore.get(session.id(), context.asyncAssertSuccess(s1 -> {
+                sessionStore.get(session.id(), context.asyncAssertSuccess(s2 -> {
+                    context.assertEquals(1L, sessionStore.misses());
+                    context.assertEquals(1L, sessionStore.hits());
+                    context.assertTrue(s1 == s2, "Second get should be served from local map");
+                }));
+            }));
+        }));
+    }
+
+    @Test(timeout = 5000)
+    public void localSessionShouldBeInvalidatedWhenUpdatedOnOtherNode(TestContext context) {
+        Vertx vertx = rule.vertx();
+        Async async = context.async();
+        NearCacheSessionStore sessionStore = NearCacheSessionStore.create(vertx);
+        ExtendedSession session = createSession(vertx);
+        localMap.put(session.id(), session);
+
+        vertx.eventBus().publish(NearCacheSessionStore.DEFAULT_SESSION_MAP_NAME + ".invalidation",
+            new JsonObject().put("id", session.id()).put("version", 5).put("node", "other-node"));
+        vertx.setTimer(500, unused -> {
+            context.assertNull(localMap.get(session.id()), "Stale local session should be removed");
+            context.assertEquals(1L, sessionStore.invalidations());
+            async.complete();
+        });
+    }
+
+    @Test(timeout = 5000)
+    public void localSessionShouldApplyDeltaFromOtherNode(TestContext context) {
+        Vertx vertx = rule.vertx();
+        Async async = context.async();
+        NearCacheSessionStore sessionStore = NearCacheSessionStore.create(vertx);
+        ExtendedSessionImpl session = (ExtendedSessionImpl) sessionStore.createSession(DEFAULT_TIMEOUT);
+        session.put("removed", "value");
+        session.writeDeltaToBuffer(Buffer.buffer());
+        localMap.put(session.id(), session);
+
+        ExtendedSessionImpl remoteCopy = new ExtendedSessionImpl(new SharedDataSessionImpl(new PRNG(vertx), DEFAULT_TIMEOUT, DEFAULT_SESSIONID_LENGTH));
+        remoteCopy.put("testObjKey", new TestObject("TestObject"));
+        remoteCopy.remove("removed");
+        Buffer delta = Buffer.buffer();
+        remoteCopy.writeDeltaToBuffer(delta);
+
+        vertx.eventBus().publish(NearCacheSessionStore.DEFAULT_SESSION_MAP_NAME + ".invalidation",
+            new JsonObject().put("id", session.id()).put("baseVersion", session.version())
+                .put("version", session.version() + 1).put("delta", delta.getBytes()).put("node", "other-node"));
+        vertx.setTimer(500, unused -> {
+            ExtendedSessionImpl updated = (ExtendedSessionImpl) localMap.get(session.id());
+            context.assertNotNull(updated, "Local session should be kept");
+            context.assertFalse(updated == session, "Delta should be applied to a copy of the local session");
+            context.assertEquals(session.version() + 1, updated.version());
+            context.assertFalse(updated.isDirty(), "Applied delta should not be replicated again");
+            context.assertEquals(new TestObject("TestObject"), updated.get("testObjKey"));
+            context.assertNull(updated.get("removed"));
+            context.assertEquals("value", session.get("removed"), "Instance in use should not be changed");
+            context.assertEquals(0L, sessionStore.invalidations());
+            async.complete();
+        });
+    }
+
     @Test(timeout = 5000)
     public void deleteShouldSucceedIfSessionDoesNotExist(TestContext context) {
         Vertx vertx = rule.vertx();
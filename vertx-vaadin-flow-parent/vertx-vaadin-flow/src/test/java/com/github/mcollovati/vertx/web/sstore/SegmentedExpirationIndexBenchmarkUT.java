@@ -0,0 +1,105 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.web.sstore;
+
+import java.util.Locale;
+import java.util.function.Consumer;
+
+import com.github.mcollovati.vertx.utils.MicroBenchmark;
+import org.junit.Test;
+
+/**
+ * Compares {@link SegmentedExpirationIndex} with the single {@link ExpirationIndex} previously used by
+ * the local session store, for session accesses and for reaper passes over a large number of sessions.
+ */
+public class SegmentedExpirationIndexBenchmarkUT {
+
+    private static final int SESSIONS = 100_000;
+    private static final int BATCH_SIZE = 1000;
+    private static final long FAR_FUTURE = 1_000_000L;
+
+    private final String[] ids = new String[SESSIONS];
+
+    @Test
+    public void scheduleAndReap() {
+        MicroBenchmark.assumeEnabled();
+        for (int i = 0; i < SESSIONS; i++) {
+            ids[i] = "session-" + i;
+        }
+        ExpirationIndex single = new ExpirationIndex();
+        SegmentedExpirationIndex segmented = new SegmentedExpirationIndex();
+        for (int i = 0; i < SESSIONS; i++) {
+            single.schedule(ids[i], FAR_FUTURE + i);
+            segmented.schedule(ids[i], FAR_FUTURE + i);
+        }
+        Consumer<String> reaped = id -> { };
+
+        int[] next = new int[1];
+        MicroBenchmark.measure("access, single index", 100_000, () -> {
+            String id = ids[next[0]++ % SESSIONS];
+            single.schedule(id, FAR_FUTURE + next[0]);
+            return id;
+        });
+        MicroBenchmark.measure("access, segmented index", 100_000, () -> {
+            String id = ids[next[0]++ % SESSIONS];
+            segmented.schedule(id, FAR_FUTURE + next[0]);
+            return id;
+        });
+
+        // Each pass expires a slice of sessions, reaps them and puts them back
+        int[] dueCount = {SESSIONS / 100};
+        MicroBenchmark.measure("reaper pass, 1% due, single index", 100, () -> {
+            expire(single::schedule, dueCount[0]);
+            return single.pollDue(1, Integer.MAX_VALUE, reaped);
+        });
+        MicroBenchmark.measure("reaper pass, 1% due, segmented index", 100, () -> {
+            expire(segmented::schedule, dueCount[0]);
+            return segmented.pollDue(1, BATCH_SIZE, reaped);
+        });
+        dueCount[0] = SESSIONS / 10;
+        MicroBenchmark.measure("reaper pass, 10% due, single index", 20, () -> {
+            expire(single::schedule, dueCount[0]);
+            return single.pollDue(1, Integer.MAX_VALUE, reaped);
+        });
+        int passes = dueCount[0] / BATCH_SIZE;
+        double time = MicroBenchmark.measure("reaper passes, 10% due, segmented index", 20, () -> {
+            expire(segmented::schedule, dueCount[0]);
+            boolean done = false;
+            while (!done) {
+                done = segmented.pollDue(1, BATCH_SIZE, reaped);
+            }
+            return done;
+        });
+        System.out.println(String.format(Locale.ROOT, "%-60s %12.1f ns/op", "  each of " + passes + " bounded passes", time / passes));
+    }
+
+    private void expire(Scheduler scheduler, int count) {
+        for (int i = 0; i < count; i++) {
+            scheduler.schedule(ids[i], 0);
+        }
+    }
+
+    private interface Scheduler {
+        void schedule(String id, long expiresAt);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * The MIT License
+ * Copyright © 2016-2019 Marco Collovati (mcollovati@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.mcollovati.vertx.web.sstore;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.RunTestOnContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.ext.web.Session;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@RunWith(VertxUnitRunner.class)
+public class WriteBehindSessionStoreUT {
+
+    private static final long TIMEOUT = 30 * 60 * 1000;
+
+    @Rule
+    public RunTestOnContext rule = new RunTestOnContext();
+
+    private ExtendedSessionStore delegate;
+
+    @Before
+    public void setup() {
+        delegate = ExtendedLocalSessionStore.create(rule.vertx(), "write-behind-test");
+    }
+
+    @Test
+    public void putsShouldBeCoalescedUntilFlush(TestContext context) {
+        WriteBehindSessionStore store = WriteBehindSessionStore.create(rule.vertx(), delegate, 0);
+        Session session = store.createSession(TIMEOUT);
+        store.put(session, context.asyncAssertSuccess());
+        store.put(session, context.asyncAssertSuccess());
+        store.put(session, context.asyncAssertSuccess());
+        context.assertEquals(1, store.pendingWrites());
+        context.assertEquals(2L, store.coalescedWrites());
+
+        delegate.get(session.id(), context.asyncAssertSuccess(stored -> {
+            context.assertNull(stored, "Session should not be written before flush");
+            store.get(session.id(), context.asyncAssertSuccess(pending -> {
+                context.assertTrue(pending == session, "Pending session should be served");
+                store.flush(context.asyncAssertSuccess(x -> {
+                    context.assertEquals(0, store.pendingWrites());
+                    context.assertEquals(1L, store.flushes());
+                    delegate.get(session.id(), context.asyncAssertSuccess(context::assertNotNull));
+                }));
+            }));
+        }));
+    }
+
+    @Test
+    public void deleteShouldDiscardPendingWrite(TestContext context) {
+        WriteBehindSessionStore store = WriteBehindSessionStore.create(rule.vertx(), delegate, 0);
+        Session session = store.createSession(TIMEOUT);
+        store.put(session, context.asyncAssertSuccess());
+        store.delete(session.id(), context.asyncAssertSuccess(x -> {
+            context.assertEquals(0, store.pendingWrites());
+            store.flush(context.asyncAssertSuccess(y ->
+                delegate.get(session.id(), context.asyncAssertSuccess(context::assertNull))
+            ));
+        }));
+    }
+
+    @Test
+    public void pendingWritesShouldBeFlushedPeriodically(TestContext context) {
+        Vertx vertx = rule.vertx();
+        Async async = context.async();
+        WriteBehindSessionStore store = WriteBehindSessionStore.create(vertx, delegate, 50);
+        Session session = store.createSession(TIMEOUT);
+        store.put(session, context.asyncAssertSuccess());
+        vertx.setTimer(500, tid -> delegate.get(session.id(), context.asyncAssertSuccess(stored -> {
+            context.assertNotNull(stored);
+            context.assertEquals(0, store.pendingWrites());
+            store.close();
+            async.complete();
+        })));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void failedWritesShouldBeRetriedByNextFlush(TestContext context) {
+        ExtendedSessionStore failing = mock(ExtendedSessionStore.class);
+        AtomicInteger attempts = new AtomicInteger();
+        doAnswer(invocation -> {
+            Handler<AsyncResult<Void>> handler = invocation.getArgumentAt(1, Handler.class);
+            handler.handle(attempts.getAndIncrement() == 0 ? Future.failedFuture("unavailable") : Future.succeededFuture());
+            return null;
+        }).when(failing).put(any(Session.class), any(Handler.class));
+        WriteBehindSessionStore store = WriteBehindSessionStore.create(rule.vertx(), failing, 0);
+        Session session = delegate.createSession(TIMEOUT);
+        store.put(session, context.asyncAssertSuccess());
+
+        store.flush(context.asyncAssertFailure(x -> {
+            context.assertEquals(1, store.pendingWrites());
+            store.flush(context.asyncAssertSuccess(y -> {
+                context.assertEquals(0, store.pendingWrites());
+                context.assertEquals(2, attempts.get());
+            }));
+        }));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void closeShouldWritePendingSessionsAndCloseDelegate(TestContext context) {
+        ExtendedSessionStore target = mock(ExtendedSessionStore.class);
+        doAnswer(invocation -> {
+            invocation.getArgumentAt(1, Handler.class).handle(Future.succeededFuture());
+            return null;
+        }).when(target).put(any(Session.class), any(Handler.class));
+        WriteBehindSessionStore store = WriteBehindSessionStore.create(rule.vertx(), target, 50);
+        Session session = delegate.createSession(TIMEOUT);
+        store.put(session, context.asyncAssertSuccess());
+
+        store.close(context.asyncAssertSuccess(x -> {
+            context.assertEquals(0, store.pendingWrites());
+            verify(target).put(any(Session.class), any(Handler.class));
+            verify(target).close();
+        }));
+    }
+}
@@ -0,0 +1,80 @@
+console.log('static asset line 0');
+console.log('static asset line 1');
+console.log('static asset line 2');
+console.log('static asset line 3');
+console.log('static asset line 4');
+console.log('static asset line 5');
+console.log('static asset line 6');
+console.log('static asset line 7');
+console.log('static asset line 8');
+console.log('static asset line 9');
+console.log('static asset line 10');
+console.log('static asset line 11');
+console.log('static asset line 12');
+console.log('static asset line 13');
+console.log('static asset line 14');
+console.log('static asset line 15');
+console.log('static asset line 16');
+console.log('static asset line 17');
+console.log('static asset line 18');
+console.log('static asset line 19');
+console.log('static asset line 20');
+console.log('static asset line 21');
+console.log('static asset line 22');
+console.log('static asset line 23');
+console.log('static asset line 24');
+console.log('static asset line 25');
+console.log('static asset line 26');
+console.log('static asset line 27');
+console.log('static asset line 28');
+console.log('static asset line 29');
+console.log('static asset line 30');
+console.log('static asset line 31');
+console.log('static asset line 32');
+console.log('static asset line 33');
+console.log('static asset line 34');
+console.log('static asset line 35');
+console.log('static asset line 36');
+console.log('static asset line 37');
+console.log('static asset line 38');
+console.log('static asset line 39');
+console.log('static asset line 40');
+console.log('static asset line 41');
+console.log('static asset line 42');
+console.log('static asset line 43');
+console.log('static asset line 44');
+console.log('static asset line 45');
+console.log('static asset line 46');
+console.log('static asset line 47');
+console.log('static asset line 48');
+console.log('static asset line 49');
+console.log('static asset line 50');
+console.log('static asset line 51');
+console.log('static asset line 52');
+console.log('static asset line 53');
+console.log('static asset line 54');
+console.log('static asset line 55');
+console.log('static asset line 56');
+console.log('static asset line 57');
+console.log('static asset line 58');
+console.log('static asset line 59');
+console.log('static asset line 60');
+console.log('static asset line 61');
+console.log('static asset line 62');
+console.log('static asset line 63');
+console.log('static asset line 64');
+console.log('static asset line 65');
+console.log('static asset line 66');
+console.log('static asset line 67');
+console.log('static asset line 68');
+console.log('static asset line 69');
+console.log('static asset line 70');
+console.log('static asset line 71');
+console.log('static asset line 72');
+console.log('static asset line 73');
+console.log('static asset line 74');
+console.log('static asset line 75');
+console.log('static asset line 76');
+console.log('static asset line 77');
+console.log('static asset line 78');
+console.log('static asset line 79');